@@ -0,0 +1,100 @@
+package com.poli.benchmarks;
+
+import com.poli.FileTrees;
+import com.poli.GenerateInfoFiles;
+import com.poli.Main;
+import com.poli.ProductCatalog;
+import com.poli.SalesAggregation;
+import com.poli.SalesCube;
+import com.poli.SalesmanRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latencia de las consultas sobre el cubo vendedor × producto ({@link SalesCube}). El cubo
+ * se arma una vez por prueba; cada operación consulta un vendedor o producto distinto,
+ * recorriéndolos en orden, para no medir siempre la misma fila ya en caché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CubeBenchmark {
+
+    private static final long SEED = 42L;
+
+    @Param({"10000", "100000"})
+    public int salesmen;
+
+    @Param({"20"})
+    public int rowsPerFile;
+
+    @Param({"1000", "10000"})
+    public int products;
+
+    private Path dataDirectory;
+    private SalesCube cube;
+    private int nextSalesman;
+    private int nextProduct;
+
+    @Setup(Level.Trial)
+    public void buildCube() throws IOException {
+        dataDirectory = Files.createTempDirectory("poli-bench-cubo-");
+        GenerateInfoFiles.generateDataset(dataDirectory, salesmen, rowsPerFile, products, SEED);
+        ProductCatalog catalog = Main.loadProductCatalog(dataDirectory);
+        SalesmanRegistry registry = Main.loadSalesmanRegistry(dataDirectory);
+        cube = SalesAggregation.aggregate(catalog, registry, dataDirectory, true).getCube();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() throws IOException {
+        FileTrees.deleteRecursively(dataDirectory);
+    }
+
+    private int salesman() {
+        nextSalesman = nextSalesman + 1 == salesmen ? 0 : nextSalesman + 1;
+        return nextSalesman;
+    }
+
+    private int product() {
+        nextProduct = nextProduct + 1 == products ? 0 : nextProduct + 1;
+        return nextProduct;
+    }
+
+    @Benchmark
+    public long quantity() {
+        return cube.quantity(salesman(), product());
+    }
+
+    @Benchmark
+    public int[] topSalesmenOfProduct() {
+        return cube.topSalesmen(product(), 10);
+    }
+
+    @Benchmark
+    public int[] topProductsOfSalesman() {
+        return cube.topProducts(salesman(), 10);
+    }
+
+    @Benchmark
+    public int[] topProductsByDocumentType() {
+        return cube.topProductsByDocumentType("CC", 10);
+    }
+}
@@ -0,0 +1,125 @@
+package com.poli.benchmarks;
+
+import com.poli.FileTrees;
+import com.poli.GenerateInfoFiles;
+import com.poli.Main;
+import com.poli.ProductCatalog;
+import com.poli.SalesAggregation;
+import com.poli.SalesmanRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de cada etapa del flujo generar → agregar → reportar. Antes de cada prueba se
+ * genera con {@link GenerateInfoFiles} un conjunto de datos del tamaño indicado por los
+ * parámetros (con semilla fija, para que todas las corridas midan los mismos archivos).
+ *
+ * <p>Se miden el rendimiento (operaciones por segundo) y la distribución de latencias
+ * (percentiles de {@code SampleTime}); la tasa de asignación se obtiene agregando
+ * {@code -prof gc} al ejecutar {@code benchmarks.jar}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final long SEED = 42L;
+
+    @Param({"1000", "10000"})
+    public int salesmen;
+
+    @Param({"20", "200"})
+    public int rowsPerFile;
+
+    @Param({"16", "1000"})
+    public int products;
+
+    private Path dataDirectory;
+    private Path outputDirectory;
+
+    private HashMap<String, Long> productPrices;
+    private HashMap<Long, String[]> salesmenData;
+    private ProductCatalog catalog;
+    private SalesmanRegistry registry;
+    private SalesAggregation aggregation;
+
+    @Setup(Level.Trial)
+    public void generateDataset() throws IOException {
+        dataDirectory = Files.createTempDirectory("poli-bench-datos-");
+        outputDirectory = Files.createTempDirectory("poli-bench-reportes-");
+        GenerateInfoFiles.generateDataset(dataDirectory, salesmen, rowsPerFile, products, SEED);
+
+        productPrices = Main.loadProductPrices(dataDirectory);
+        salesmenData = Main.loadSalesmanData(dataDirectory);
+        catalog = Main.loadProductCatalog(dataDirectory);
+        registry = Main.loadSalesmanRegistry(dataDirectory);
+        aggregation = SalesAggregation.aggregate(catalog, registry, dataDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() throws IOException {
+        FileTrees.deleteRecursively(dataDirectory);
+        FileTrees.deleteRecursively(outputDirectory);
+    }
+
+    @Benchmark
+    public HashMap<String, Long> loadProductPrices() {
+        return Main.loadProductPrices(dataDirectory);
+    }
+
+    @Benchmark
+    public HashMap<Long, String[]> loadSalesmanData() {
+        return Main.loadSalesmanData(dataDirectory);
+    }
+
+    @Benchmark
+    public HashMap<Long, Long> calculateSalesTotals() {
+        return Main.calculateSalesTotals(salesmenData, productPrices, dataDirectory);
+    }
+
+    @Benchmark
+    public HashMap<String, Long> calculateProductSales() {
+        return Main.calculateProductSales(productPrices, salesmenData, dataDirectory);
+    }
+
+    /** Ambos totales en una sola pasada, sin las vistas HashMap. */
+    @Benchmark
+    public SalesAggregation aggregateSales() {
+        return SalesAggregation.aggregate(catalog, registry, dataDirectory);
+    }
+
+    @Benchmark
+    public SalesAggregation aggregateSalesParallel() {
+        return SalesAggregation.aggregateParallel(catalog, registry, dataDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public void createFinalReports() {
+        Main.createFinalReports(aggregation, outputDirectory, 1, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void createTop100Reports() {
+        Main.createFinalReports(aggregation, outputDirectory, 1, 100);
+    }
+
+}
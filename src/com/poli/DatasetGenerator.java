@@ -0,0 +1,409 @@
+package com.poli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generador de conjuntos de datos de prueba de carga (Etapa 1 a gran escala). Produce
+ * "Product.csv", "Salesman.csv" y un archivo de ventas por vendedor, con el mismo formato
+ * que {@link GenerateInfoFiles}, pero pensado para millones de vendedores y miles de
+ * millones de filas:
+ *
+ * <ul>
+ *   <li>Es reproducible: cada vendedor usa su propio generador derivado de la semilla y de
+ *       su posición, así que el resultado es el mismo sin importar cuántos hilos se usen.</li>
+ *   <li>Los números de documento y los IDs de producto son únicos por construcción (una
+ *       permutación del rango de 10 dígitos), sin tablas para detectar repetidos.</li>
+ *   <li>Los archivos de ventas se escriben en paralelo; cada hilo arma las filas en un búfer
+ *       de bytes propio y lo vuelca en bloques grandes.</li>
+ *   <li>Con {@code --shards=K} los archivos de ventas se reparten en subdirectorios
+ *       (ver {@link SalesFileLayout}).</li>
+ * </ul>
+ *
+ * Opciones (todas opcionales):
+ * <pre>
+ *   --vendedores=N     Cantidad de vendedores (por defecto 20).
+ *   --filas=N          Filas de cada archivo de ventas (por defecto 20).
+ *   --filas=MIN-MAX    Filas de cada archivo entre MIN y MAX, según --distribucion.
+ *   --distribucion=D   fija, uniforme o sesgada (muchos archivos pequeños y pocos grandes).
+ *   --productos=P      Cantidad de productos (por defecto 16).
+ *   --semilla=S        Semilla del generador (por defecto 42).
+ *   --hilos=T          Hilos para escribir los archivos de ventas (por defecto, los núcleos).
+ *   --salida=DIR       Directorio de salida (por defecto el actual).
+ *   --shards=K         Reparte los archivos de ventas en K subdirectorios "ventas/NNN/".
+ * </pre>
+ */
+public class DatasetGenerator {
+
+    /** Cómo se reparte la cantidad de filas de cada archivo entre el mínimo y el máximo. */
+    public enum RowDistribution { FIXED, UNIFORM, SKEWED }
+
+    private static final long DOCUMENT_BASE = 1000000000L;
+    private static final long DOCUMENT_RANGE = 900000000L;
+    private static final long PRODUCT_BASE = 1000000000L;
+    private static final long PRODUCT_RANGE = 9000000000L;
+    /** Primo con ambos rangos (no es múltiplo de 2, 3 ni 5): i -> i * M + B es una permutación. */
+    private static final long PERMUTATION_MULTIPLIER = 100000007L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Vendedores que toma un hilo cada vez; suficientemente pocos para repartir bien la carga. */
+    private static final int CHUNK_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+
+    private int salesmanCount = 20;
+    private long minRows = 20;
+    private long maxRows = 20;
+    private RowDistribution distribution = RowDistribution.FIXED;
+    private int productCount = 16;
+    private long seed = 42L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path outputDirectory = GenerateInfoFiles.CURRENT_DIRECTORY;
+    private int shards = 0;
+    private boolean verbose = true;
+
+    /**
+     * @param salesmanCount La cantidad de vendedores.
+     * @param rowsPerFile La cantidad de filas de cada archivo de ventas.
+     * @param productCount La cantidad de productos.
+     * @param seed La semilla del generador.
+     * @param outputDirectory El directorio de salida.
+     */
+    public DatasetGenerator(int salesmanCount, long rowsPerFile, int productCount, long seed, Path outputDirectory) {
+        this.salesmanCount = salesmanCount;
+        this.minRows = rowsPerFile;
+        this.maxRows = rowsPerFile;
+        this.productCount = productCount;
+        this.seed = seed;
+        this.outputDirectory = outputDirectory;
+    }
+
+    private DatasetGenerator() {
+    }
+
+    /**
+     * Interpreta los argumentos de la línea de comandos.
+     *
+     * @param args Los argumentos.
+     * @return El generador configurado.
+     * @throws IllegalArgumentException Si algún argumento no es válido.
+     */
+    public static DatasetGenerator parse(String[] args) {
+        DatasetGenerator generator = new DatasetGenerator();
+        String distributionName = null;
+        for (String arg : args) {
+            String name = arg;
+            String value = null;
+            int equals = arg.indexOf('=');
+            if (equals >= 0) {
+                name = arg.substring(0, equals);
+                value = arg.substring(equals + 1);
+            }
+            switch (name) {
+                case "--vendedores":
+                    generator.salesmanCount = RunOptions.parsePositiveInt(name, value);
+                    break;
+                case "--filas":
+                    int dash = RunOptions.requireValue(name, value).indexOf('-');
+                    if (dash < 0) {
+                        generator.minRows = parseRowCount(name, value);
+                        generator.maxRows = generator.minRows;
+                    } else {
+                        generator.minRows = parseRowCount(name, value.substring(0, dash));
+                        generator.maxRows = parseRowCount(name, value.substring(dash + 1));
+                        if (generator.maxRows < generator.minRows) {
+                            throw new IllegalArgumentException("En --filas el máximo no puede ser menor que el mínimo: " + value);
+                        }
+                    }
+                    break;
+                case "--distribucion":
+                    distributionName = RunOptions.requireValue(name, value);
+                    break;
+                case "--productos":
+                    generator.productCount = RunOptions.parsePositiveInt(name, value);
+                    break;
+                case "--semilla":
+                    try {
+                        generator.seed = Long.parseLong(RunOptions.requireValue(name, value));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("El valor de --semilla debe ser un entero: " + value);
+                    }
+                    break;
+                case "--hilos":
+                    generator.threads = RunOptions.parsePositiveInt(name, value);
+                    break;
+                case "--salida":
+                    generator.outputDirectory = Paths.get(RunOptions.requireValue(name, value));
+                    break;
+                case "--shards":
+                    generator.shards = RunOptions.parsePositiveInt(name, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argumento desconocido: " + arg);
+            }
+        }
+        if (distributionName == null) {
+            generator.distribution = generator.minRows == generator.maxRows ? RowDistribution.FIXED : RowDistribution.UNIFORM;
+        } else {
+            switch (distributionName) {
+                case "fija":
+                    generator.distribution = RowDistribution.FIXED;
+                    break;
+                case "uniforme":
+                    generator.distribution = RowDistribution.UNIFORM;
+                    break;
+                case "sesgada":
+                    generator.distribution = RowDistribution.SKEWED;
+                    break;
+                default:
+                    throw new IllegalArgumentException("El valor de --distribucion debe ser fija, uniforme o sesgada: " + distributionName);
+            }
+        }
+        return generator;
+    }
+
+    private static long parseRowCount(String name, String value) {
+        try {
+            long rows = Long.parseLong(value);
+            if (rows >= 0) {
+                return rows;
+            }
+        } catch (NumberFormatException e) {
+            // Se reporta abajo con el nombre de la opción
+        }
+        throw new IllegalArgumentException("El valor de " + name + " debe ser un entero no negativo: " + value);
+    }
+
+    /**
+     * @param minRows Mínimo de filas por archivo.
+     * @param maxRows Máximo de filas por archivo.
+     * @param distribution Cómo se reparten entre el mínimo y el máximo.
+     */
+    public void setRowRange(long minRows, long maxRows, RowDistribution distribution) {
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.distribution = distribution;
+    }
+
+    /**
+     * @param threads Hilos para escribir los archivos de ventas.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param shards Cantidad de subdirectorios para los archivos de ventas, o 0 para ninguno.
+     */
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * @param verbose false para no imprimir el progreso ni el resumen.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Escribe el conjunto de datos completo en el directorio de salida.
+     *
+     * @throws IOException Si no se puede escribir algún archivo.
+     */
+    public void generate() throws IOException {
+        if (salesmanCount > DOCUMENT_RANGE) {
+            throw new IllegalArgumentException("No hay números de documento únicos para " + salesmanCount + " vendedores.");
+        }
+        long start = System.nanoTime();
+        Files.createDirectories(outputDirectory);
+
+        long[] productIds = new long[productCount];
+        writeProductFile(productIds);
+        String[] documentTypes = writeSalesmanFile();
+        if (shards > 0) {
+            for (int shard = 0; shard < shards; shard++) {
+                Files.createDirectories(SalesFileLayout.shardDirectory(outputDirectory, shard, shards));
+            }
+        }
+        long rows = writeSalesFiles(productIds, documentTypes);
+
+        if (verbose) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Se generaron %d vendedores, %d productos y %d filas de ventas en %s (%.1f s).%n",
+                    salesmanCount, productCount, rows, outputDirectory.toAbsolutePath(), seconds);
+        }
+    }
+
+    /**
+     * @param salesmanIndex La posición del vendedor (0 a N - 1).
+     * @return Su número de documento, distinto para cada posición.
+     */
+    public long documentNumberAt(int salesmanIndex) {
+        return DOCUMENT_BASE + (salesmanIndex * PERMUTATION_MULTIPLIER + Math.floorMod(seed, DOCUMENT_RANGE)) % DOCUMENT_RANGE;
+    }
+
+    /**
+     * @param productIndex La posición del producto (0 a P - 1).
+     * @return Su ID, distinto para cada posición.
+     */
+    public long productIdAt(int productIndex) {
+        return PRODUCT_BASE + (productIndex * PERMUTATION_MULTIPLIER + Math.floorMod(seed * GOLDEN_GAMMA, PRODUCT_RANGE)) % PRODUCT_RANGE;
+    }
+
+    private void writeProductFile(long[] productIds) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(outputDirectory.resolve(Main.PRODUCT_FILE), StandardCharsets.UTF_8)) {
+            writer.write("IDProducto;NombreProducto;PrecioPorUnidad\n");
+            for (int i = 0; i < productCount; i++) {
+                productIds[i] = productIdAt(i);
+                long productPrice = random.nextLong(90000L) + 10000L;
+                writer.write(productIds[i] + ";" + GenerateInfoFiles.productName(i) + ";" + productPrice + "\n");
+            }
+        }
+    }
+
+    /**
+     * Escribe "Salesman.csv". El tipo de documento sale del generador propio de cada
+     * vendedor, así que coincide con el que se usa después para el nombre de su archivo.
+     *
+     * @return El tipo de documento de cada vendedor.
+     */
+    private String[] writeSalesmanFile() throws IOException {
+        String[] documentTypes = new String[salesmanCount];
+        try (BufferedWriter writer = Files.newBufferedWriter(outputDirectory.resolve(Main.SALESMAN_FILE), StandardCharsets.UTF_8)) {
+            writer.write("TipoDocumento;NúmeroDocumento;NombresVendedor;ApellidosVendedor\n");
+            for (int i = 0; i < salesmanCount; i++) {
+                SplittableRandom random = salesmanRandom(i);
+                String documentType = GenerateInfoFiles.DOCUMENT_TYPES[random.nextInt(GenerateInfoFiles.DOCUMENT_TYPES.length)];
+                String name = GenerateInfoFiles.NAMES[random.nextInt(GenerateInfoFiles.NAMES.length)];
+                String lastname = GenerateInfoFiles.LASTNAMES[random.nextInt(GenerateInfoFiles.LASTNAMES.length)];
+                documentTypes[i] = documentType;
+                writer.write(documentType + ";" + documentNumberAt(i) + ";" + name + ";" + lastname + "\n");
+            }
+        }
+        return documentTypes;
+    }
+
+    private long writeSalesFiles(long[] productIds, String[] documentTypes) throws IOException {
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger filesWritten = new AtomicInteger();
+        AtomicLong rowsWritten = new AtomicLong();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        int chunks = (salesmanCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int chunk;
+                while (failure.get() == null && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                    int end = Math.min(salesmanCount, (chunk + 1) * CHUNK_SIZE);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        try {
+                            rowsWritten.addAndGet(writeSalesFile(i, documentTypes[i], productIds, buffer));
+                            filesWritten.incrementAndGet();
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                if (verbose) {
+                    System.out.printf("  %d de %d archivos de ventas (%d filas)...%n", filesWritten.get(), salesmanCount, rowsWritten.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación interrumpida", e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return rowsWritten.get();
+    }
+
+    /**
+     * Escribe el archivo de ventas de un vendedor. Las filas se arman como bytes en el búfer
+     * del hilo y se vuelcan cuando se llena, sin crear cadenas por fila.
+     *
+     * @return La cantidad de filas escritas.
+     */
+    private long writeSalesFile(int salesmanIndex, String documentType, long[] productIds, byte[] buffer) throws IOException {
+        SplittableRandom random = salesmanRandom(salesmanIndex);
+        // Mismo orden de sorteos que en writeSalesmanFile: tipo, nombre y apellido
+        random.nextInt(GenerateInfoFiles.DOCUMENT_TYPES.length);
+        random.nextInt(GenerateInfoFiles.NAMES.length);
+        random.nextInt(GenerateInfoFiles.LASTNAMES.length);
+        long rows = rowCount(random);
+
+        Path file = SalesFileLayout.salesFile(outputDirectory, documentType, documentNumberAt(salesmanIndex), shards);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int position = 0;
+            byte[] header = "ID_Producto;Cantidad_Producto_vendido\n".getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(header, 0, buffer, 0, header.length);
+            position += header.length;
+            for (long row = 0; row < rows; row++) {
+                if (position > buffer.length - 32) {
+                    out.write(buffer, 0, position);
+                    position = 0;
+                }
+                position = writeDigits(buffer, position, productIds[random.nextInt(productIds.length)]);
+                buffer[position++] = ';';
+                position = writeDigits(buffer, position, random.nextInt(20) + 1);
+                buffer[position++] = '\n';
+            }
+            out.write(buffer, 0, position);
+        }
+        return rows;
+    }
+
+    private long rowCount(SplittableRandom random) {
+        switch (distribution) {
+            case UNIFORM:
+                return minRows + random.nextLong(maxRows - minRows + 1);
+            case SKEWED:
+                // u^3 concentra la mayoría de los archivos cerca del mínimo, con pocos muy grandes
+                double u = random.nextDouble();
+                return minRows + (long) ((maxRows - minRows) * u * u * u);
+            default:
+                return minRows;
+        }
+    }
+
+    private SplittableRandom salesmanRandom(int salesmanIndex) {
+        return new SplittableRandom(seed ^ (salesmanIndex + 1) * GOLDEN_GAMMA);
+    }
+
+    /** Escribe un entero no negativo en ASCII y devuelve la posición siguiente. */
+    private static int writeDigits(byte[] buffer, int position, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,245 @@
+package com.poli;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * Reportes con memoria acotada ({@code --externo}), para cuando los vendedores no caben en
+ * el heap. No se arma el {@link SalesmanRegistry}: "Salesman.csv" se recorre línea por
+ * línea y los vendedores pasan por dos ordenamientos externos ({@link ExternalSorter}),
+ * que vuelcan corridas ordenadas a disco cuando superan el presupuesto de memoria:
+ * <ol>
+ *   <li>por número de documento, para quedarse con la última línea de cada documento
+ *       repetido, igual que {@link SalesmanRegistry#load}; a medida que salen de la mezcla
+ *       se lee el archivo de ventas de cada uno y se calcula su total;</li>
+ *   <li>por total de mayor a menor (y documento de menor a mayor ante empates), cuya
+ *       mezcla se escribe directamente al reporte de vendedores.</li>
+ * </ol>
+ * <p>En memoria solo quedan el catálogo de productos (hace falta para valorar cada fila) y
+ * las cantidades por producto, que dependen del tamaño del catálogo y no de la cantidad de
+ * vendedores ni de filas. Los reportes son idénticos a los de la corrida normal.</p>
+ */
+public class ExternalSalesReport {
+
+    /** Memoria por defecto para los registros de los dos ordenamientos. */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /** Un vendedor leído de "Salesman.csv" y, después de leer su archivo, su total. */
+    private static class SalesmanRow {
+        final long documentNumber;
+        final String documentType;
+        final String firstName;
+        final String lastName;
+        long total;
+
+        SalesmanRow(long documentNumber, String documentType, String firstName, String lastName, long total) {
+            this.documentNumber = documentNumber;
+            this.documentType = documentType;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.total = total;
+        }
+
+        long memorySize() {
+            // Objeto y cabeceras de los tres textos, más sus caracteres (un byte cada uno si son latinos)
+            return 40 + 3 * 48 + documentType.length() + firstName.length() + lastName.length();
+        }
+    }
+
+    private static final Comparator<SalesmanRow> BY_DOCUMENT = Comparator.comparingLong(row -> row.documentNumber);
+    private static final Comparator<SalesmanRow> BY_RANK = (a, b) -> {
+        int byTotal = Long.compare(b.total, a.total);
+        return byTotal != 0 ? byTotal : Long.compare(a.documentNumber, b.documentNumber);
+    };
+
+    private static final ExternalSorter.Codec<SalesmanRow> CODEC = new ExternalSorter.Codec<SalesmanRow>() {
+        @Override
+        public void write(DataOutput out, SalesmanRow row) throws IOException {
+            out.writeLong(row.documentNumber);
+            out.writeLong(row.total);
+            out.writeUTF(row.documentType);
+            out.writeUTF(row.firstName);
+            out.writeUTF(row.lastName);
+        }
+
+        @Override
+        public SalesmanRow read(DataInput in) throws IOException {
+            long documentNumber = in.readLong();
+            long total = in.readLong();
+            return new SalesmanRow(documentNumber, in.readUTF(), in.readUTF(), in.readUTF(), total);
+        }
+
+        @Override
+        public long memorySize(SalesmanRow row) {
+            return row.memorySize();
+        }
+    };
+
+    private final ProductCatalog catalog;
+    private final Path dataDirectory;
+    private final int salesShards;
+    private final long memoryBudget;
+
+    private final SalesFileParser parser = new SalesFileParser();
+    private final long[] productQuantities;
+    private final boolean[] productSold;
+    private long currentTotal;
+    private long unknownProductRows = 0L;
+    private final SalesFileParser.RowHandler rowHandler = new SalesFileParser.RowHandler() {
+        @Override
+        public void onRow(long productId, int quantity) {
+            int index = catalog.indexOf(productId);
+            if (index >= 0) {
+                currentTotal += (long) quantity * catalog.priceAt(index);
+                productQuantities[index] += quantity;
+                productSold[index] = true;
+            } else {
+                unknownProductRows++;
+            }
+        }
+    };
+
+    private long filesRead = 0L;
+    private long rowsProcessed = 0L;
+    private long bytesRead = 0L;
+    private final RunMetrics.SlowestFiles slowestFiles = new RunMetrics.SlowestFiles(RunMetrics.SLOWEST_FILES);
+    private String sortSummary = "";
+
+    /**
+     * @param catalog El catálogo de productos.
+     * @param dataDirectory El directorio con "Salesman.csv" y los archivos de ventas; ahí se
+     *                      escriben los reportes y las corridas temporales.
+     * @param salesShards La cantidad de shards de los archivos de ventas, o 0.
+     * @param memoryBudget Bytes para los registros en memoria de los dos ordenamientos.
+     */
+    public ExternalSalesReport(ProductCatalog catalog, Path dataDirectory, int salesShards, long memoryBudget) {
+        this.catalog = catalog;
+        this.dataDirectory = dataDirectory;
+        this.salesShards = salesShards;
+        this.memoryBudget = memoryBudget;
+        this.productQuantities = new long[catalog.size()];
+        this.productSold = new boolean[catalog.size()];
+    }
+
+    /**
+     * Calcula los totales y escribe los dos reportes.
+     *
+     * @param fromRank La primera posición a escribir.
+     * @param toRank La última posición a escribir ({@code Integer.MAX_VALUE} para todas).
+     * @param format El formato de los reportes.
+     * @param gzip true para comprimirlos.
+     * @param metrics Donde se registran las etapas.
+     * @throws IOException Si no se pueden leer los vendedores o escribir las corridas.
+     */
+    public void createReports(int fromRank, int toRank, ReportWriter.Format format, boolean gzip, RunMetrics metrics) throws IOException {
+        Path spillDirectory = Files.createTempDirectory(dataDirectory.toAbsolutePath(), "ordenamiento-");
+        try {
+            // Los dos ordenamientos conviven mientras se calculan los totales: cada uno usa la mitad
+            ExternalSorter<SalesmanRow> byDocument = new ExternalSorter<>(BY_DOCUMENT, CODEC, memoryBudget / 2, spillDirectory);
+            ExternalSorter<SalesmanRow> byRank = new ExternalSorter<>(BY_RANK, CODEC, memoryBudget / 2, spillDirectory);
+
+            RunMetrics.Stage salesmanLoad = metrics.start("carga_vendedores");
+            long[] salesmen = new long[1];
+            SalesmanRegistry.forEach(dataDirectory.resolve(Main.SALESMAN_FILE), (documentNumber, documentType, firstName, lastName) -> {
+                byDocument.add(new SalesmanRow(documentNumber, documentType, firstName, lastName, 0L));
+                salesmen[0]++;
+            });
+            salesmanLoad.finish(salesmen[0], Files.size(dataDirectory.resolve(Main.SALESMAN_FILE)), 1L);
+
+            RunMetrics.Stage aggregating = metrics.start("agregacion");
+            long uniqueSalesmen = 0L;
+            try (ExternalSorter.Merge<SalesmanRow> merge = byDocument.finish()) {
+                SalesmanRow row = merge.next();
+                while (row != null) {
+                    SalesmanRow next = merge.next();
+                    // Con documentos repetidos se conserva la última línea: es la última de su grupo
+                    if (next == null || next.documentNumber != row.documentNumber) {
+                        row.total = readSalesFile(row);
+                        byRank.add(row);
+                        uniqueSalesmen++;
+                    }
+                    row = next;
+                }
+            }
+            aggregating.finish(rowsProcessed, bytesRead, filesRead);
+            metrics.setSlowestFiles(slowestFiles);
+            if (unknownProductRows > 0) {
+                System.err.println("Se omiten del reporte " + unknownProductRows + " filas de productos que no están en Product.csv.");
+            }
+
+            writeSalesmanReport(byRank, uniqueSalesmen, fromRank, toRank, format, gzip, metrics);
+            Main.writeProductReport(productAggregation(), dataDirectory, fromRank, toRank, format, gzip, metrics);
+            sortSummary = "por documento: " + byDocument.describe() + "; por total: " + byRank.describe();
+        } finally {
+            FileTrees.deleteRecursively(spillDirectory);
+        }
+    }
+
+    private long readSalesFile(SalesmanRow row) {
+        Path file = SalesFileLayout.salesFile(dataDirectory, row.documentType, row.documentNumber, salesShards);
+        currentTotal = 0L;
+        long start = System.nanoTime();
+        try {
+            long rows = parser.parse(file, rowHandler);
+            rowsProcessed += rows;
+            bytesRead += parser.getEndOffset();
+            filesRead++;
+            slowestFiles.offer(file, System.nanoTime() - start, parser.getEndOffset(), rows);
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de ventas " + file + ": " + e.getMessage());
+        }
+        return currentTotal;
+    }
+
+    private void writeSalesmanReport(ExternalSorter<SalesmanRow> byRank, long salesmen, int fromRank, int toRank,
+                                     ReportWriter.Format format, boolean gzip, RunMetrics metrics) throws IOException {
+        Path reportFile = ReportWriter.reportFile(dataDirectory, Main.SALESMAN_REPORT, format, gzip);
+        RunMetrics.Stage selection = metrics.start("seleccion_vendedores");
+        ExternalSorter.Merge<SalesmanRow> merge = byRank.finish();
+        selection.finish(salesmen, 0L, 0L);
+
+        RunMetrics.Stage writing = metrics.start("escritura_vendedores");
+        long written = 0L;
+        try (ExternalSorter.Merge<SalesmanRow> ranked = merge;
+             ReportWriter writer = ReportWriter.open(reportFile, format, gzip)) {
+            writer.writeHeader(Main.SALESMAN_REPORT_COLUMNS);
+            long rank = 0L;
+            for (SalesmanRow row = ranked.next(); row != null && rank < toRank; row = ranked.next()) {
+                if (++rank >= fromRank) {
+                    writer.beginRow().field(row.firstName).field(row.lastName).field(row.total).endRow();
+                    written++;
+                }
+            }
+            writer.commit();
+            writing.finish(written, Files.size(reportFile), 1L);
+            System.out.println("Reporte de vendedores creado con éxito: " + reportFile);
+        } catch (IOException e) {
+            System.err.println("Error al crear el reporte de vendedores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Una agregación con solo las cantidades por producto, para el reporte de productos.
+     */
+    private SalesAggregation productAggregation() {
+        SalesAggregation aggregation = new SalesAggregation(catalog, new SalesmanRegistry(0), dataDirectory);
+        for (int i = 0; i < catalog.size(); i++) {
+            if (productSold[i]) {
+                aggregation.addProductQuantity(catalog.productIdAt(i), productQuantities[i]);
+            }
+        }
+        return aggregation;
+    }
+
+    /**
+     * @return Un resumen de cuántos registros se volcaron a disco en cada ordenamiento.
+     */
+    public String describe() {
+        return "Ordenamiento externo (" + (memoryBudget / (1024 * 1024)) + " MB) " + sortSummary;
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.poli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ordenamiento externo: los registros se acumulan en memoria hasta llegar al presupuesto,
+ * y entonces se ordenan y se vuelcan a un archivo temporal ("corrida"). Al terminar, las
+ * corridas se mezclan de a k con un montículo y los registros se entregan ya ordenados,
+ * uno por uno, sin volver a cargarlos todos en memoria. Si hay más corridas de las que se
+ * pueden mezclar a la vez, se mezclan primero por grupos en corridas más largas.
+ *
+ * <p>Si todo cabe en memoria no se escribe ningún archivo.</p>
+ *
+ * <pre>
+ *   ExternalSorter&lt;Fila&gt; sorter = new ExternalSorter&lt;&gt;(orden, codec, presupuesto, directorio);
+ *   for (...) {
+ *       sorter.add(fila);
+ *   }
+ *   try (ExternalSorter.Merge&lt;Fila&gt; merge = sorter.finish()) {
+ *       for (Fila fila = merge.next(); fila != null; fila = merge.next()) {
+ *           ...
+ *       }
+ *   }
+ * </pre>
+ *
+ * @param <T> El tipo de los registros.
+ */
+public class ExternalSorter<T> {
+
+    /**
+     * Cómo se escribe, se lee y cuánto ocupa en memoria un registro.
+     *
+     * @param <T> El tipo de los registros.
+     */
+    public interface Codec<T> {
+
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+
+        /**
+         * @return Bytes aproximados que ocupa el registro en el heap, para el presupuesto.
+         */
+        long memorySize(T record);
+    }
+
+    /** Cantidad máxima de corridas que se mezclan a la vez (un buffer de lectura por cada una). */
+    private static final int MAX_FAN_IN = 64;
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+
+    private final Comparator<? super T> order;
+    private final Codec<T> codec;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+
+    private final List<T> buffer = new ArrayList<>();
+    private long bufferedBytes = 0L;
+    private final List<Path> runs = new ArrayList<>();
+    private long records = 0L;
+    private long spilledRecords = 0L;
+    private long spilledBytes = 0L;
+    private int mergePasses = 0;
+
+    /**
+     * @param order El orden de salida.
+     * @param codec La forma de escribir y leer los registros.
+     * @param memoryBudget Bytes de registros que se acumulan en memoria antes de volcarlos.
+     * @param spillDirectory El directorio para las corridas (debe existir).
+     */
+    public ExternalSorter(Comparator<? super T> order, Codec<T> codec, long memoryBudget, Path spillDirectory) {
+        this.order = order;
+        this.codec = codec;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Agrega un registro; si el buffer supera el presupuesto, se ordena y se vuelca a disco.
+     *
+     * @param record El registro.
+     * @throws IOException Si no se puede escribir la corrida.
+     */
+    public void add(T record) throws IOException {
+        buffer.add(record);
+        bufferedBytes += codec.memorySize(record) + 8; // Más la referencia en la lista
+        records++;
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(order);
+        Path run = Files.createTempFile(spillDirectory, "corrida-", ".tmp");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+            for (T record : buffer) {
+                codec.write(out, record);
+            }
+        }
+        spilledRecords += buffer.size();
+        spilledBytes += Files.size(run);
+        buffer.clear();
+        bufferedBytes = 0L;
+    }
+
+    /**
+     * Termina de agregar registros y devuelve el recorrido ordenado. Al cerrarlo se borran
+     * las corridas.
+     *
+     * @return Los registros en orden.
+     * @throws IOException Si no se pueden escribir o leer las corridas.
+     */
+    public Merge<T> finish() throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            return new Merge<>(buffer);
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            mergePasses++;
+            List<Path> longer = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<Path> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+                Path run = Files.createTempFile(spillDirectory, "corrida-", ".tmp");
+                try (Merge<T> merge = new Merge<>(group, order, codec);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+                    for (T record = merge.next(); record != null; record = merge.next()) {
+                        codec.write(out, record);
+                    }
+                }
+                longer.add(run);
+            }
+            runs.clear();
+            runs.addAll(longer);
+        }
+        mergePasses++;
+        Merge<T> merge = new Merge<>(new ArrayList<>(runs), order, codec);
+        runs.clear();
+        buffer.clear();
+        return merge;
+    }
+
+    /**
+     * @return Un resumen de cuánto se volcó a disco.
+     */
+    public String describe() {
+        return records + " registros, " + spilledRecords + " volcados a disco en corridas ("
+                + spilledBytes + " bytes), " + mergePasses + " pasadas de mezcla";
+    }
+
+    /**
+     * Recorrido ordenado de los registros: mezcla de las corridas en disco, o la lista ya
+     * ordenada si no hubo que volcar nada.
+     *
+     * @param <T> El tipo de los registros.
+     */
+    public static class Merge<T> implements Closeable {
+        private final List<T> sorted;
+        private int nextSorted = 0;
+        private final List<Path> runs;
+        private final Codec<T> codec;
+        private final DataInputStream[] inputs;
+        private final PriorityQueue<Head<T>> heads;
+
+        private static class Head<T> {
+            final T record;
+            final int run;
+
+            Head(T record, int run) {
+                this.record = record;
+                this.run = run;
+            }
+        }
+
+        private Merge(List<T> sorted) {
+            this.sorted = sorted;
+            this.runs = new ArrayList<>();
+            this.codec = null;
+            this.inputs = new DataInputStream[0];
+            this.heads = null;
+        }
+
+        private Merge(List<Path> runs, Comparator<? super T> order, Codec<T> codec) throws IOException {
+            this.sorted = null;
+            this.runs = new ArrayList<>(runs);
+            this.codec = codec;
+            this.inputs = new DataInputStream[runs.size()];
+            // Ante registros iguales sale primero el de la corrida anterior: como cada corrida se
+            // ordena de forma estable, los iguales salen en el orden en que se agregaron
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                int byRecord = order.compare(a.record, b.record);
+                return byRecord != 0 ? byRecord : Integer.compare(a.run, b.run);
+            });
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    inputs[i] = new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(i)), RUN_BUFFER_SIZE));
+                    advance(i);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void advance(int run) throws IOException {
+            T record;
+            try {
+                record = codec.read(inputs[run]);
+            } catch (EOFException e) {
+                return; // Corrida terminada
+            }
+            heads.add(new Head<>(record, run));
+        }
+
+        /**
+         * @return El siguiente registro en orden, o null si no quedan.
+         * @throws IOException Si no se puede leer una corrida.
+         */
+        public T next() throws IOException {
+            if (sorted != null) {
+                return nextSorted < sorted.size() ? sorted.get(nextSorted++) : null;
+            }
+            Head<T> head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            advance(head.run);
+            return head.record;
+        }
+
+        /**
+         * Cierra y borra las corridas.
+         */
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (int i = 0; i < inputs.length; i++) {
+                try {
+                    if (inputs[i] != null) {
+                        inputs[i].close();
+                    }
+                    Files.deleteIfExists(runs.get(i));
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.poli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Operaciones sobre directorios completos, para los temporales que se crean junto a los
+ * datos (corridas de ordenamiento, parciales de los trabajadores) y los conjuntos de datos
+ * de los benchmarks.
+ */
+public final class FileTrees {
+
+    private FileTrees() {
+    }
+
+    /**
+     * Borra un directorio con todo lo que tiene. No hace nada si no existe.
+     *
+     * @param directory El directorio a borrar, o null.
+     * @throws IOException Si algo no se puede borrar.
+     */
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
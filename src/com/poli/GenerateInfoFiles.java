@@ -1,5 +1,10 @@
+package com.poli;
+
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -7,6 +12,13 @@ import java.util.Map;
 import java.util.Random;
 
 public class GenerateInfoFiles {
+
+    /** Directorio de trabajo, donde se escriben los archivos si no se indica otro. */
+    static final Path CURRENT_DIRECTORY = Paths.get("");
+
+    static final String[] DOCUMENT_TYPES = {"TI", "CC", "CE"};
+    static final String[] NAMES = {"Sara", "Andrea", "Estefany", "Jessica", "Juliana", "Francisco", "Antonio", "Camilo", "Michael", "German", "Eduar", "Jhon", "Viviana","Julio","Laura","Luis","Leonardo","Jose"};
+    static final String[] LASTNAMES = {"Rios", "Cardona", "Rivera", "Alvares", "Murillo", "Montoya", "Contreras", "Jimenes","Corrales","Velez","Caicedo","Mejia"};
     
     //---------------------------------------------------------------------------------
     //  MÉTODOS PARA GENERAR Y GESTIONAR LA INFORMACIÓN DE LOS VENDEDORES
@@ -18,18 +30,28 @@ public class GenerateInfoFiles {
      * @return Un HashMap donde la clave es el número de documento y el valor es un array con los datos del vendedor.
      */
     public static HashMap<Long, String[]> generateSalesmenData(int salesmanCount) {
+        return generateSalesmenData(salesmanCount, new Random());
+    }
+
+    /**
+     * Genera datos de vendedores usando el generador aleatorio indicado, para poder
+     * reproducir el mismo conjunto de datos a partir de una semilla.
+     * @param salesmanCount El número de vendedores a generar.
+     * @param random El generador de números aleatorios.
+     * @return Un HashMap donde la clave es el número de documento y el valor es un array con los datos del vendedor.
+     */
+    public static HashMap<Long, String[]> generateSalesmenData(int salesmanCount, Random random) {
         HashMap<Long, String[]> salesmenData = new HashMap<>();
-        Random random = new Random();
-        
-        String[] documentTypes = {"TI", "CC", "CE"};
-        String[] names = {"Sara", "Andrea", "Estefany", "Jessica", "Juliana", "Francisco", "Antonio", "Camilo", "Michael", "German", "Eduar", "Jhon", "Viviana","Julio","Laura","Luis","Leonardo","Jose"};
-        String[] lastnames = {"Rios", "Cardona", "Rivera", "Alvares", "Murillo", "Montoya", "Contreras", "Jimenes","Corrales","Velez","Caicedo","Mejia"};
         
         for (int i = 0; i < salesmanCount; i++) {
-            String randomDocType = documentTypes[random.nextInt(documentTypes.length)];
-            long documentNumber = 1000000000L + random.nextInt(900000000);
-            String randomName = names[random.nextInt(names.length)];
-            String randomLastname = lastnames[random.nextInt(lastnames.length)];
+            String randomDocType = DOCUMENT_TYPES[random.nextInt(DOCUMENT_TYPES.length)];
+            long documentNumber;
+            do {
+                // Se repite el sorteo si el documento ya existe, para no sobrescribir a otro vendedor
+                documentNumber = 1000000000L + random.nextInt(900000000);
+            } while (salesmenData.containsKey(documentNumber));
+            String randomName = NAMES[random.nextInt(NAMES.length)];
+            String randomLastname = LASTNAMES[random.nextInt(LASTNAMES.length)];
             
             String[] salesmanInfo = {randomDocType, randomName, randomLastname};
             salesmenData.put(documentNumber, salesmanInfo);
@@ -42,8 +64,17 @@ public class GenerateInfoFiles {
      * @param salesmenData El HashMap con los datos de los vendedores.
      */
     public static void createSalesmanInfoFile(HashMap<Long, String[]> salesmenData) {
-        String fileName = "Salesman.csv";
-        try (FileWriter fileWriter = new FileWriter(fileName)) { // Uso de try-with-resources para cerrar el escritor automáticamente
+        createSalesmanInfoFile(salesmenData, CURRENT_DIRECTORY);
+    }
+
+    /**
+     * Crea el archivo "Salesman.csv" dentro del directorio indicado.
+     * @param salesmenData El HashMap con los datos de los vendedores.
+     * @param directory El directorio de salida.
+     */
+    public static void createSalesmanInfoFile(HashMap<Long, String[]> salesmenData, Path directory) {
+        Path fileName = directory.resolve("Salesman.csv");
+        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(fileName.toFile()))) { // Uso de try-with-resources para cerrar el escritor automáticamente
             fileWriter.write("TipoDocumento;NúmeroDocumento;NombresVendedor;ApellidosVendedor\n");
             
             for (Map.Entry<Long, String[]> entry : salesmenData.entrySet()) {
@@ -67,11 +98,23 @@ public class GenerateInfoFiles {
      * @return Un HashMap donde la clave es el nombre del producto y el valor es un array con el ID y el precio.
      */
     public static HashMap<String, String[]> generateProductData() {
-        String[] productNames = {"Tornillo", "Tuerca", "Arandela", "Broca", "Atornillador", "Martillo", "Llave", "Serrucho", "Taladro", "Bateria", "Puntilla","Disco_corte","Disco_pulir","Toma_corriente","Cable_duplex","Alambre"};
+        return generateProductData(PRODUCT_NAMES.length, new Random());
+    }
+
+    private static final String[] PRODUCT_NAMES = {"Tornillo", "Tuerca", "Arandela", "Broca", "Atornillador", "Martillo", "Llave", "Serrucho", "Taladro", "Bateria", "Puntilla","Disco_corte","Disco_pulir","Toma_corriente","Cable_duplex","Alambre"};
+
+    /**
+     * Genera la cantidad de productos indicada. Los primeros usan los nombres base; si se
+     * piden más, se numeran (por ejemplo "Tornillo_2").
+     * @param productCount La cantidad de productos.
+     * @param random El generador de números aleatorios.
+     * @return Un HashMap donde la clave es el nombre del producto y el valor es un array con el ID y el precio.
+     */
+    public static HashMap<String, String[]> generateProductData(int productCount, Random random) {
         HashMap<String, String[]> productData = new HashMap<>();
-        Random random = new Random();
         
-        for (String productName : productNames) {
+        for (int i = 0; i < productCount; i++) {
+            String productName = productName(i);
             long productId = random.nextLong(9000000000L) + 1000000000L;
             long productPrice = random.nextLong(90000L) + 10000L;
             
@@ -80,14 +123,35 @@ public class GenerateInfoFiles {
         }
         return productData;
     }
+
+    /**
+     * @param productIndex La posición del producto (desde 0).
+     * @return Su nombre: el nombre base, numerado a partir de la segunda vuelta ("Tornillo_2").
+     */
+    static String productName(int productIndex) {
+        String productName = PRODUCT_NAMES[productIndex % PRODUCT_NAMES.length];
+        if (productIndex >= PRODUCT_NAMES.length) {
+            productName += "_" + (productIndex / PRODUCT_NAMES.length + 1);
+        }
+        return productName;
+    }
     
     /**
      * Crea un archivo CSV con la información de los productos.
      * @param productData El HashMap con la información de los productos.
      */
     public static void createProductFile(HashMap<String, String[]> productData) {
-        String fileName = "Product.csv";
-        try (FileWriter fileWriter = new FileWriter(fileName)) {
+        createProductFile(productData, CURRENT_DIRECTORY);
+    }
+
+    /**
+     * Crea el archivo "Product.csv" dentro del directorio indicado.
+     * @param productData El HashMap con la información de los productos.
+     * @param directory El directorio de salida.
+     */
+    public static void createProductFile(HashMap<String, String[]> productData, Path directory) {
+        Path fileName = directory.resolve("Product.csv");
+        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(fileName.toFile()))) {
             fileWriter.write("IDProducto;NombreProducto;PrecioPorUnidad\n");
             
             for (Map.Entry<String, String[]> entry : productData.entrySet()) {
@@ -114,12 +178,30 @@ public class GenerateInfoFiles {
      * @param productData El HashMap con la información de todos los productos.
      */
     public static void createSalesmenFile(int randomSalesCount, String documentType, long documentNumber, HashMap<String, String[]> productData) {
-        String fileName = "Sales_" + documentType + "_" + documentNumber + ".csv";
-        try (FileWriter fileWriter = new FileWriter(fileName)) {
+        createSalesmenFile(randomSalesCount, documentType, documentNumber, productData, CURRENT_DIRECTORY, new Random());
+    }
+
+    /**
+     * Crea el archivo de ventas de un vendedor dentro del directorio indicado.
+     * @param randomSalesCount Número de ventas a generar.
+     * @param documentType Tipo de documento del vendedor.
+     * @param documentNumber Número de documento del vendedor.
+     * @param productData El HashMap con la información de todos los productos.
+     * @param directory El directorio de salida.
+     * @param random El generador de números aleatorios.
+     */
+    public static void createSalesmenFile(int randomSalesCount, String documentType, long documentNumber, HashMap<String, String[]> productData, Path directory, Random random) {
+        createSalesmenFile(randomSalesCount, documentType, documentNumber, productData, new ArrayList<>(productData.keySet()), directory, random);
+    }
+
+    /**
+     * Igual que el anterior, recibiendo la lista de nombres de producto ya armada para no
+     * reconstruirla con cada vendedor.
+     */
+    private static void createSalesmenFile(int randomSalesCount, String documentType, long documentNumber, HashMap<String, String[]> productData, List<String> productNames, Path directory, Random random) {
+        Path fileName = directory.resolve("Sales_" + documentType + "_" + documentNumber + ".csv");
+        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(fileName.toFile()))) {
             fileWriter.write("ID_Producto;Cantidad_Producto_vendido\n");
-            Random random = new Random();
-            
-            List<String> productNames = new ArrayList<>(productData.keySet());
             
             for (int i = 0; i < randomSalesCount; i++) {
                 String randomProductName = productNames.get(random.nextInt(productNames.size()));
@@ -135,11 +217,43 @@ public class GenerateInfoFiles {
         }
     }
 
+    /**
+     * Genera un conjunto de datos completo (vendedores, productos y archivos de ventas) de
+     * tamaño configurable y reproducible: la misma semilla produce los mismos archivos.
+     * Usa {@link DatasetGenerator} (en paralelo y sin mensajes por archivo).
+     * @param directory El directorio de salida.
+     * @param salesmanCount La cantidad de vendedores.
+     * @param salesPerFile La cantidad de filas de cada archivo de ventas.
+     * @param productCount La cantidad de productos.
+     * @param seed La semilla del generador aleatorio.
+     */
+    public static void generateDataset(Path directory, int salesmanCount, int salesPerFile, int productCount, long seed) throws IOException {
+        DatasetGenerator generator = new DatasetGenerator(salesmanCount, salesPerFile, productCount, seed, directory);
+        generator.setVerbose(false);
+        generator.generate();
+    }
+
     //---------------------------------------------------------------------------------
     //  MÉTODO PRINCIPAL (MAIN)
     //---------------------------------------------------------------------------------
 
+    /**
+     * Sin argumentos genera el conjunto pequeño de siempre en el directorio actual. Con
+     * argumentos ({@code --vendedores=N --filas=MIN-MAX --semilla=S ...}) usa
+     * {@link DatasetGenerator} para conjuntos grandes y reproducibles.
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            try {
+                DatasetGenerator.parse(args).generate();
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+            } catch (IOException e) {
+                System.err.println("Error al crear o escribir en el archivo: " + e.getMessage());
+            }
+            return;
+        }
+
         // La cantidad de vendedores que queremos generar
         int totalSalesmen = 20;
         
@@ -156,12 +270,14 @@ public class GenerateInfoFiles {
         createProductFile(productData);
 
         // 5. Usamos los datos de los vendedores para crear los archivos de ventas.
+        List<String> productNames = new ArrayList<>(productData.keySet());
+        Random random = new Random();
         for (Map.Entry<Long, String[]> entry : salesmenData.entrySet()) {
             Long documentNumber = entry.getKey();
             String[] info = entry.getValue();
             String documentType = info[0];
 
-            createSalesmenFile(20, documentType, documentNumber, productData); 
+            createSalesmenFile(20, documentType, documentNumber, productData, productNames, CURRENT_DIRECTORY, random);
         }
 
         System.out.println("Proceso de creación de archivos finalizado.");
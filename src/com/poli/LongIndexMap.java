@@ -0,0 +1,129 @@
+package com.poli;
+
+import java.util.Arrays;
+
+/**
+ * Tabla hash de direccionamiento abierto que asigna a cada clave {@code long} un índice
+ * denso (0, 1, 2, ...) en orden de inserción. Sirve para convertir IDs de producto y
+ * números de documento de 10 dígitos en posiciones de arreglos primitivos, sin
+ * objetos {@code Long} ni nodos por entrada.
+ *
+ * <p>Las lecturas concurrentes son seguras una vez terminada la carga; las
+ * inserciones no.</p>
+ */
+public class LongIndexMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** Índice + 1 de la clave guardada en cada casilla; 0 indica casilla vacía. */
+    private int[] slots;
+    private long[] keys;
+    private int size = 0;
+    private int mask;
+
+    public LongIndexMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Cantidad de claves esperada, para evitar redimensionar durante la carga.
+     */
+    public LongIndexMap(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(MIN_CAPACITY, expectedSize));
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        keys = new long[capacity];
+    }
+
+    /**
+     * Busca el índice de una clave.
+     *
+     * @param key La clave.
+     * @return El índice denso de la clave, o -1 si no existe.
+     */
+    public int indexOf(long key) {
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Agrega una clave si no existe.
+     *
+     * @param key La clave.
+     * @return El índice denso de la clave (el existente o el recién asignado).
+     */
+    public int add(long key) {
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == keys.length) {
+            grow();
+            return add(key);
+        }
+        keys[size] = key;
+        slots[slot] = ++size;
+        return size - 1;
+    }
+
+    /**
+     * @param index Un índice denso entre 0 y {@code size() - 1}.
+     * @return La clave asociada a ese índice.
+     */
+    public long keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return Cantidad de claves guardadas.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Bytes aproximados que ocupan los arreglos internos.
+     */
+    public long footprintBytes() {
+        return (long) slots.length * Integer.BYTES + (long) keys.length * Long.BYTES;
+    }
+
+    private void grow() {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        slots = new int[keys.length * 2];
+        mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    private static int hash(long key) {
+        // Mezcla final de MurmurHash3: los IDs son casi consecutivos y sin mezclar se agrupan
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(n);
+        return capacity < n ? capacity << 1 : capacity;
+    }
+}
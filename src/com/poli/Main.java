@@ -1,12 +1,15 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+package com.poli;
+
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase principal que ejecuta la Etapa 2 del proyecto: leer los archivos generados
@@ -19,6 +22,59 @@ public class Main {
     // LÓGICA DE REPORTE - MÉTODOS DE LA ETAPA 2
     //---------------------------------------------------------------------------------
 
+    /** Archivo con el catálogo de productos generado en la Etapa 1. */
+    static final String PRODUCT_FILE = "Product.csv";
+    /** Archivo con la lista de vendedores generado en la Etapa 1. */
+    static final String SALESMAN_FILE = "Salesman.csv";
+    /** Directorio de trabajo, donde se buscan los datos si no se indica otro. */
+    static final Path CURRENT_DIRECTORY = Paths.get("");
+    /** Nombre (sin extensión) y columnas del reporte de vendedores. */
+    static final String SALESMAN_REPORT = "Reporte_Ventas_Vendedores";
+    static final String[] SALESMAN_REPORT_COLUMNS = {"Nombre_Vendedor", "Apellido_Vendedor", "Total_Ventas"};
+    /** Nombre (sin extensión) y columnas del reporte de productos. */
+    static final String PRODUCT_REPORT = "Reporte_Ventas_Productos";
+    static final String[] PRODUCT_REPORT_COLUMNS = {"Nombre_Producto", "Precio_Unidad", "Cantidad_Vendida"};
+
+    /**
+     * Lee el archivo "Product.csv" una sola vez y construye el catálogo de productos,
+     * con los IDs convertidos a índices densos.
+     *
+     * @return El catálogo de productos.
+     */
+    public static ProductCatalog loadProductCatalog() {
+        return loadProductCatalog(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * Igual que {@link #loadProductCatalog()}, con "Product.csv" dentro de {@code dataDirectory}.
+     *
+     * @param dataDirectory El directorio de los datos.
+     * @return El catálogo de productos.
+     */
+    public static ProductCatalog loadProductCatalog(Path dataDirectory) {
+        return ProductCatalog.load(dataDirectory.resolve(PRODUCT_FILE));
+    }
+
+    /**
+     * Lee el archivo "Salesman.csv" y construye el registro de vendedores,
+     * con los números de documento convertidos a índices densos.
+     *
+     * @return El registro de vendedores.
+     */
+    public static SalesmanRegistry loadSalesmanRegistry() {
+        return loadSalesmanRegistry(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * Igual que {@link #loadSalesmanRegistry()}, con "Salesman.csv" dentro de {@code dataDirectory}.
+     *
+     * @param dataDirectory El directorio de los datos.
+     * @return El registro de vendedores.
+     */
+    public static SalesmanRegistry loadSalesmanRegistry(Path dataDirectory) {
+        return SalesmanRegistry.load(dataDirectory.resolve(SALESMAN_FILE));
+    }
+
     /**
      * Lee el archivo "Product.csv" y carga los precios de los productos en un HashMap.
      * La clave es el ID del producto y el valor es el precio.
@@ -26,21 +82,15 @@ public class Main {
      * @return Un HashMap con los IDs de los productos y sus precios.
      */
     public static HashMap<String, Long> loadProductPrices() {
-        HashMap<String, Long> productPrices = new HashMap<>();
-        String fileName = "Product.csv";
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            reader.readLine(); // Omitir el encabezado
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length == 3) {
-                    productPrices.put(parts[0], Long.parseLong(parts[2]));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error al leer el archivo Product.csv: " + e.getMessage());
-        }
-        return productPrices;
+        return loadProductPrices(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param dataDirectory El directorio de los datos.
+     * @return Un HashMap con los IDs de los productos y sus precios.
+     */
+    public static HashMap<String, Long> loadProductPrices(Path dataDirectory) {
+        return loadProductCatalog(dataDirectory).toPriceMap();
     }
 
     /**
@@ -51,94 +101,82 @@ public class Main {
      * @return Un HashMap con los datos de los vendedores.
      */
     public static HashMap<Long, String[]> loadSalesmanData() {
-        HashMap<Long, String[]> salesMenData = new HashMap<>();
-        String fileName = "Salesman.csv";
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            reader.readLine(); // Omitir el encabezado
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length == 4) {
-                    Long numDoc = Long.parseLong(parts[1]);
-                    String[] salesmanInfo = {parts[0], parts[2], parts[3]};
-                    salesMenData.put(numDoc, salesmanInfo);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error al leer el archivo Salesman.csv: " + e.getMessage());
-        }
-        return salesMenData;
+        return loadSalesmanData(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param dataDirectory El directorio de los datos.
+     * @return Un HashMap con los datos de los vendedores.
+     */
+    public static HashMap<Long, String[]> loadSalesmanData(Path dataDirectory) {
+        return loadSalesmanRegistry(dataDirectory).toMap();
+    }
+
+    /**
+     * Recorre una sola vez los archivos de ventas de todos los vendedores y calcula,
+     * en la misma lectura, el total de ventas por vendedor y la cantidad vendida de cada producto.
+     *
+     * @param salesMenData El HashMap con la información de los vendedores.
+     * @param productPrices El HashMap con los precios de cada producto.
+     * @return La agregación con ambos totales.
+     */
+    public static SalesAggregation aggregateSales(HashMap<Long, String[]> salesMenData, HashMap<String, Long> productPrices) {
+        return aggregateSales(salesMenData, productPrices, CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param salesMenData El HashMap con la información de los vendedores.
+     * @param productPrices El HashMap con los precios de cada producto.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @return La agregación con ambos totales.
+     */
+    public static SalesAggregation aggregateSales(HashMap<Long, String[]> salesMenData, HashMap<String, Long> productPrices, Path dataDirectory) {
+        return SalesAggregation.aggregate(ProductCatalog.fromPrices(productPrices), SalesmanRegistry.fromMap(salesMenData), dataDirectory);
     }
 
     /**
      * Calcula el total de ventas por vendedor, leyendo cada archivo de ventas individual.
+     * Es una vista sobre {@link #aggregateSales}; si también se necesitan los totales por
+     * producto conviene llamar directamente a ese método para no leer los archivos dos veces.
      *
      * @param salesMenData El HashMap con la información de los vendedores.
      * @param productPrices El HashMap con los precios de cada producto.
      * @return Un HashMap donde la clave es el número de documento del vendedor y el valor es su total de ventas.
      */
     public static HashMap<Long, Long> calculateSalesTotals(HashMap<Long, String[]> salesMenData, HashMap<String, Long> productPrices) {
-        HashMap<Long, Long> salesTotals = new HashMap<>();
-        for (Map.Entry<Long, String[]> salesmanEntry : salesMenData.entrySet()) {
-            Long documentNumber = salesmanEntry.getKey();
-            String documentType = salesmanEntry.getValue()[0];
-            String fileName = "Sales_" + documentType + "_" + documentNumber + ".csv";
-            long totalSalesForSalesman = 0L;
-            try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-                reader.readLine(); // Omitir el encabezado
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(";");
-                    if (parts.length == 2) {
-                        String productId = parts[0];
-                        int quantitySold = Integer.parseInt(parts[1]);
-                        if (productPrices.containsKey(productId)) {
-                            long price = productPrices.get(productId);
-                            totalSalesForSalesman += (long) quantitySold * price;
-                        }
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error al leer el archivo de ventas " + fileName + ": " + e.getMessage());
-            }
-            salesTotals.put(documentNumber, totalSalesForSalesman);
-        }
-        return salesTotals;
+        return calculateSalesTotals(salesMenData, productPrices, CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param salesMenData El HashMap con la información de los vendedores.
+     * @param productPrices El HashMap con los precios de cada producto.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @return Un HashMap donde la clave es el número de documento del vendedor y el valor es su total de ventas.
+     */
+    public static HashMap<Long, Long> calculateSalesTotals(HashMap<Long, String[]> salesMenData, HashMap<String, Long> productPrices, Path dataDirectory) {
+        return aggregateSales(salesMenData, productPrices, dataDirectory).getSalesTotals();
     }
     
     /**
      * Calcula la cantidad total de cada producto vendido, sumando las ventas de todos los vendedores.
+     * Es una vista sobre {@link #aggregateSales}.
      *
-     * @param productPrices No se utiliza directamente en este método, pero se mantiene para consistencia.
+     * @param productPrices El HashMap con los precios de cada producto.
      * @param salesMenData El HashMap con la información de los vendedores.
      * @return Un HashMap donde la clave es el ID del producto y el valor es la cantidad total vendida.
      */
     public static HashMap<String, Long> calculateProductSales(HashMap<String, Long> productPrices, HashMap<Long, String[]> salesMenData) {
-        HashMap<String, Long> productTotals = new HashMap<>();
-
-        for (Map.Entry<Long, String[]> salesmanEntry : salesMenData.entrySet()) {
-            Long documentNumber = salesmanEntry.getKey();
-            String documentType = salesmanEntry.getValue()[0];
-            String fileName = "Sales_" + documentType + "_" + documentNumber + ".csv";
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-                reader.readLine(); // Omitir el encabezado
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(";");
-                    if (parts.length == 2) {
-                        String productId = parts[0];
-                        int quantitySold = Integer.parseInt(parts[1]);
-                        
-                        // Si el producto ya existe, suma la cantidad; si no, agrégalo.
-                        productTotals.put(productId, productTotals.getOrDefault(productId, 0L) + quantitySold);
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error al leer el archivo de ventas " + fileName + ": " + e.getMessage());
-            }
-        }
-        return productTotals;
+        return calculateProductSales(productPrices, salesMenData, CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param productPrices El HashMap con los precios de cada producto.
+     * @param salesMenData El HashMap con la información de los vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @return Un HashMap donde la clave es el ID del producto y el valor es la cantidad total vendida.
+     */
+    public static HashMap<String, Long> calculateProductSales(HashMap<String, Long> productPrices, HashMap<Long, String[]> salesMenData, Path dataDirectory) {
+        return aggregateSales(salesMenData, productPrices, dataDirectory).getProductTotals();
     }
     
     /**
@@ -147,22 +185,15 @@ public class Main {
      * @return Un HashMap donde la clave es el ID del producto y el valor es un array de strings con el nombre y precio.
      */
     public static HashMap<String, String[]> loadProductData() {
-        HashMap<String, String[]> productData = new HashMap<>();
-        String fileName = "Product.csv";
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            reader.readLine(); // Omitir el encabezado
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length == 3) {
-                    String[] productInfo = {parts[1], parts[2]};
-                    productData.put(parts[0], productInfo);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error al leer el archivo Product.csv: " + e.getMessage());
-        }
-        return productData;
+        return loadProductData(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param dataDirectory El directorio de los datos.
+     * @return Un HashMap donde la clave es el ID del producto y el valor es un array de strings con el nombre y precio.
+     */
+    public static HashMap<String, String[]> loadProductData(Path dataDirectory) {
+        return loadProductCatalog(dataDirectory).toProductDataMap();
     }
 
     /**
@@ -177,17 +208,22 @@ public class Main {
         // Reporte 1: Ventas por Vendedor (ordenado por total de mayor a menor)
         String salesmanReportFileName = "Reporte_Ventas_Vendedores.csv";
         List<Map.Entry<Long, Long>> sortedSalesmen = new ArrayList<>(salesTotals.entrySet());
-        // Se usa un comparador lambda para ordenar en orden descendente
-        Collections.sort(sortedSalesmen, (e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+        // Se usa un comparador lambda para ordenar en orden descendente; los empates se
+        // resuelven por número de documento para que el orden no dependa del HashMap
+        Collections.sort(sortedSalesmen, (e1, e2) -> {
+            int byTotal = e2.getValue().compareTo(e1.getValue());
+            return byTotal != 0 ? byTotal : e1.getKey().compareTo(e2.getKey());
+        });
 
-        try (FileWriter fileWriter = new FileWriter(salesmanReportFileName)) {
-            fileWriter.write("Nombre_Vendedor;Apellido_Vendedor;Total_Ventas\n");
+        try (ReportWriter writer = ReportWriter.open(Paths.get(salesmanReportFileName), ReportWriter.Format.CSV, false)) {
+            writer.writeHeader(SALESMAN_REPORT_COLUMNS);
             for (Map.Entry<Long, Long> entry : sortedSalesmen) {
                 Long documentNumber = entry.getKey();
                 Long total = entry.getValue();
                 String[] info = salesmenInfo.get(documentNumber);
-                fileWriter.write(info[1] + ";" + info[2] + ";" + total + "\n");
+                writer.beginRow().field(info[1]).field(info[2]).field(total).endRow();
             }
+            writer.commit();
             System.out.println("Reporte de vendedores creado con éxito: " + salesmanReportFileName);
         } catch (IOException e) {
             System.err.println("Error al crear el reporte de vendedores: " + e.getMessage());
@@ -196,50 +232,276 @@ public class Main {
         // Reporte 2: Productos vendidos (ordenado por cantidad de mayor a menor)
         String productReportFileName = "Reporte_Ventas_Productos.csv";
         List<Map.Entry<String, Long>> sortedProducts = new ArrayList<>(productTotals.entrySet());
-        // Se usa un comparador lambda para ordenar en orden descendente
-        Collections.sort(sortedProducts, (e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+        // Se usa un comparador lambda para ordenar en orden descendente; los empates se
+        // resuelven por ID de producto para que el orden no dependa del HashMap
+        Collections.sort(sortedProducts, (e1, e2) -> {
+            int byQuantity = e2.getValue().compareTo(e1.getValue());
+            return byQuantity != 0 ? byQuantity : e1.getKey().compareTo(e2.getKey());
+        });
 
-        try (FileWriter fileWriter = new FileWriter(productReportFileName)) {
-            fileWriter.write("Nombre_Producto;Precio_Unidad;Cantidad_Vendida\n");
+        try (ReportWriter writer = ReportWriter.open(Paths.get(productReportFileName), ReportWriter.Format.CSV, false)) {
+            writer.writeHeader(PRODUCT_REPORT_COLUMNS);
             for (Map.Entry<String, Long> entry : sortedProducts) {
                 String productId = entry.getKey();
                 Long totalQuantity = entry.getValue();
                 String[] productInfo = productData.get(productId);
                 String productName = productInfo[0];
                 String productPrice = productInfo[1];
-                fileWriter.write(productName + ";" + productPrice + ";" + totalQuantity + "\n");
+                writer.beginRow().field(productName).field(productPrice).field(totalQuantity).endRow();
+            }
+            writer.commit();
+            System.out.println("Reporte de productos creado con éxito: " + productReportFileName);
+        } catch (IOException e) {
+            System.err.println("Error al crear el reporte de productos: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Genera los dos archivos de reporte finales directamente desde los acumuladores de la
+     * agregación. Solo se escriben las posiciones {@code fromRank..toRank} (desde 1, ambas
+     * incluidas) de cada ranking; se eligen con un montículo acotado, sin ordenar todos los
+     * vendedores ni crear entradas de mapa.
+     *
+     * @param aggregation La agregación con los totales.
+     * @param fromRank La primera posición a escribir.
+     * @param toRank La última posición a escribir ({@code Integer.MAX_VALUE} para todas).
+     */
+    public static void createFinalReports(SalesAggregation aggregation, int fromRank, int toRank) {
+        createFinalReports(aggregation, CURRENT_DIRECTORY, fromRank, toRank);
+    }
+
+    /**
+     * Igual que {@link #createFinalReports(SalesAggregation, int, int)}, escribiendo los
+     * reportes dentro de {@code outputDirectory}.
+     *
+     * @param aggregation La agregación con los totales.
+     * @param outputDirectory El directorio donde se escriben los reportes.
+     * @param fromRank La primera posición a escribir.
+     * @param toRank La última posición a escribir ({@code Integer.MAX_VALUE} para todas).
+     */
+    public static void createFinalReports(SalesAggregation aggregation, Path outputDirectory, int fromRank, int toRank) {
+        createFinalReports(aggregation, outputDirectory, fromRank, toRank, ReportWriter.Format.CSV, false);
+    }
+
+    /**
+     * Igual que {@link #createFinalReports(SalesAggregation, Path, int, int)}, en el formato
+     * indicado. Los dos reportes se seleccionan y escriben en paralelo, cada uno a un archivo
+     * temporal que se renombra al terminar.
+     *
+     * @param aggregation La agregación con los totales.
+     * @param outputDirectory El directorio donde se escriben los reportes.
+     * @param fromRank La primera posición a escribir.
+     * @param toRank La última posición a escribir ({@code Integer.MAX_VALUE} para todas).
+     * @param format El formato de los reportes.
+     * @param gzip true para comprimirlos.
+     */
+    public static void createFinalReports(SalesAggregation aggregation, Path outputDirectory, int fromRank, int toRank, ReportWriter.Format format, boolean gzip) {
+        createFinalReports(aggregation, outputDirectory, fromRank, toRank, format, gzip, new RunMetrics());
+    }
+
+    /**
+     * Igual que el anterior, registrando en {@code metrics} el tiempo de selección y de
+     * escritura de cada reporte.
+     */
+    public static void createFinalReports(SalesAggregation aggregation, Path outputDirectory, int fromRank, int toRank, ReportWriter.Format format, boolean gzip, RunMetrics metrics) {
+        CompletableFuture<Void> productReport = CompletableFuture.runAsync(
+                () -> writeProductReport(aggregation, outputDirectory, fromRank, toRank, format, gzip, metrics));
+        writeSalesmanReport(aggregation, outputDirectory, fromRank, toRank, format, gzip, metrics);
+        productReport.join();
+    }
+
+    /**
+     * Reporte 1: Ventas por Vendedor (ordenado por total de mayor a menor).
+     */
+    private static void writeSalesmanReport(SalesAggregation aggregation, Path outputDirectory, int fromRank, int toRank, ReportWriter.Format format, boolean gzip, RunMetrics metrics) {
+        SalesmanRegistry registry = aggregation.getRegistry();
+        Path salesmanReportFileName = ReportWriter.reportFile(outputDirectory, SALESMAN_REPORT, format, gzip);
+        RunMetrics.Stage selection = metrics.start("seleccion_vendedores");
+        int[] rankedSalesmen = SalesRanking.select(registry.size(), i -> true,
+                aggregation::salesmanTotalAt, registry::documentNumberAt, fromRank, toRank);
+        selection.finish(registry.size(), 0L, 0L);
+
+        RunMetrics.Stage writing = metrics.start("escritura_vendedores");
+        try (ReportWriter writer = ReportWriter.open(salesmanReportFileName, format, gzip)) {
+            writer.writeHeader(SALESMAN_REPORT_COLUMNS);
+            for (int salesmanIndex : rankedSalesmen) {
+                writer.beginRow()
+                        .field(registry.firstNameAt(salesmanIndex))
+                        .field(registry.lastNameAt(salesmanIndex))
+                        .field(aggregation.salesmanTotalAt(salesmanIndex))
+                        .endRow();
             }
+            writer.commit();
+            writing.finish(rankedSalesmen.length, Files.size(salesmanReportFileName), 1L);
+            System.out.println("Reporte de vendedores creado con éxito: " + salesmanReportFileName);
+        } catch (IOException e) {
+            System.err.println("Error al crear el reporte de vendedores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reporte 2: Productos vendidos (ordenado por cantidad de mayor a menor).
+     */
+    static void writeProductReport(SalesAggregation aggregation, Path outputDirectory, int fromRank, int toRank, ReportWriter.Format format, boolean gzip, RunMetrics metrics) {
+        ProductCatalog catalog = aggregation.getCatalog();
+        Path productReportFileName = ReportWriter.reportFile(outputDirectory, PRODUCT_REPORT, format, gzip);
+        RunMetrics.Stage selection = metrics.start("seleccion_productos");
+        int[] rankedProducts = SalesRanking.select(catalog.size(), aggregation::isProductSold,
+                aggregation::productQuantityAt, catalog::productIdAt, fromRank, toRank);
+        selection.finish(catalog.size(), 0L, 0L);
+        if (aggregation.getUnknownProductCount() > 0) {
+            System.err.println("Se omiten del reporte " + aggregation.getUnknownProductCount() + " productos vendidos que no están en Product.csv.");
+        }
+
+        RunMetrics.Stage writing = metrics.start("escritura_productos");
+        try (ReportWriter writer = ReportWriter.open(productReportFileName, format, gzip)) {
+            writer.writeHeader(PRODUCT_REPORT_COLUMNS);
+            for (int productIndex : rankedProducts) {
+                writer.beginRow()
+                        .field(catalog.nameAt(productIndex))
+                        .field(catalog.priceAt(productIndex))
+                        .field(aggregation.productQuantityAt(productIndex))
+                        .endRow();
+            }
+            writer.commit();
+            writing.finish(rankedProducts.length, Files.size(productReportFileName), 1L);
             System.out.println("Reporte de productos creado con éxito: " + productReportFileName);
         } catch (IOException e) {
             System.err.println("Error al crear el reporte de productos: " + e.getMessage());
         }
     }
     
+    /**
+     * Escribe el archivo de métricas y muestra el resumen de la corrida.
+     */
+    private static void writeMetrics(RunMetrics metrics, Path metricsFile) throws IOException {
+        metrics.write(metricsFile);
+        System.out.println(metrics.describe());
+        System.out.println("Métricas de la corrida: " + metricsFile);
+    }
+
+    /**
+     * @return El tamaño del archivo, o 0 si no se puede leer.
+     */
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
     /**
      * El método principal (main) es el punto de entrada del programa.
      * Orquesta la ejecución de la Etapa 1 (Generación de Archivos) y la Etapa 2
-     * (Análisis y Reporte).
+     * (Análisis y Reporte). Ver {@link RunOptions} para los argumentos aceptados.
      */
     public static void main(String[] args) {
         
         System.out.println("--- INICIANDO LA ETAPA 2: CÁLCULOS Y REPORTES ---");
         
         try {
-            // Cargamos los datos de los archivos generados previamente
-            HashMap<String, Long> productPrices = loadProductPrices();
-            HashMap<Long, String[]> salesmenInfo = loadSalesmanData();
-            
-            if (productPrices.isEmpty() || salesmenInfo.isEmpty()) {
-                System.err.println("Error: No se pudieron cargar los datos. Asegúrate de que los archivos 'Product.csv' y 'Salesman.csv' de la Etapa 1 existen.");
+            RunOptions options = RunOptions.parse(args);
+            if (options.isShardWorker()) {
+                // Proceso lanzado por SalesShardCoordinator: el código de salida indica si dejó su parcial
+                if (!SalesShardCoordinator.runWorker(options)) {
+                    System.exit(1);
+                }
+                return;
+            }
+            if (options.isWatch()) {
+                new SalesWatcher(options).run();
                 return;
             }
+            RunMetrics metrics = new RunMetrics();
 
-            HashMap<String, String[]> productDataMap = loadProductData();
+            // Cargamos los datos de los archivos generados previamente (cada uno se lee una sola vez)
+            Path dataDirectory = options.getDataDirectory();
+            SalesAggregation aggregation;
+            if (options.isFromStore()) {
+                // Todo sale del almacén binario: no se leen Product.csv, Salesman.csv ni los archivos de ventas
+                RunMetrics.Stage opening = metrics.start("apertura_almacen");
+                SalesStore store = SalesStore.open(dataDirectory.resolve(options.getStoreFile()), options.isVerifyStore());
+                store.getRegistry().setSalesShards(options.getSalesShards());
+                List<String> changed = store.changedSources(dataDirectory, options.isVerifyStore());
+                opening.finish(store.getRegistry().size(), 0L, 1L);
+                System.out.println(store.describe());
+                if (!changed.isEmpty()) {
+                    System.err.println("Advertencia: cambiaron " + String.join(", ", changed)
+                            + " desde la ingesta; el almacén puede estar desactualizado. Vuelve a ingerir con --ingestar.");
+                }
+                RunMetrics.Stage aggregating = metrics.start("agregacion");
+                aggregation = store.aggregate(options.isCube());
+                aggregating.finish(aggregation.getRowsProcessed(), aggregation.getBytesRead(), 1L);
+            } else {
+                RunMetrics.Stage catalogLoad = metrics.start("carga_catalogo");
+                ProductCatalog catalog = loadProductCatalog(dataDirectory);
+                catalogLoad.finish(catalog.size(), sizeOf(dataDirectory.resolve(PRODUCT_FILE)), 1L);
+                if (options.isExternal()) {
+                    // Los vendedores no se cargan: se ordenan en disco y se escriben a medida que salen
+                    if (catalog.size() == 0) {
+                        System.err.println("Error: No se pudo cargar el catálogo. Asegúrate de que el archivo 'Product.csv' de la Etapa 1 existe.");
+                        return;
+                    }
+                    ExternalSalesReport report = new ExternalSalesReport(catalog, dataDirectory, options.getSalesShards(), options.getExternalMemoryBudget());
+                    report.createReports(options.getFromRank(), options.getToRank(), options.getReportFormat(), options.isGzip(), metrics);
+                    System.out.println(report.describe());
+                    writeMetrics(metrics, dataDirectory.resolve(options.getMetricsFile()));
+                    System.out.println("\n--- PROCESO COMPLETO FINALIZADO CON ÉXITO ---\n");
+                    return;
+                }
+                RunMetrics.Stage salesmanLoad = metrics.start("carga_vendedores");
+                SalesmanRegistry registry = loadSalesmanRegistry(dataDirectory);
+                salesmanLoad.finish(registry.size(), sizeOf(dataDirectory.resolve(SALESMAN_FILE)), 1L);
+                registry.setSalesShards(options.getSalesShards());
+
+                if (catalog.size() == 0 || registry.size() == 0) {
+                    System.err.println("Error: No se pudieron cargar los datos. Asegúrate de que los archivos 'Product.csv' y 'Salesman.csv' de la Etapa 1 existen.");
+                    return;
+                }
+
+                // Una sola pasada sobre los archivos de ventas produce ambos totales
+                RunMetrics.Stage aggregating = metrics.start(options.isIngest() ? "ingesta_y_agregacion" : "agregacion");
+                if (options.isIngest()) {
+                    SalesStore store = SalesStore.ingest(catalog, registry, dataDirectory, dataDirectory.resolve(options.getStoreFile()));
+                    System.out.println(store.describe());
+                    aggregation = store.aggregate(options.isCube());
+                } else if (options.isIncremental()) {
+                    Path checkpointFile = dataDirectory.resolve(options.getCheckpointFile());
+                    SalesCheckpoint checkpoint = SalesCheckpoint.load(checkpointFile, dataDirectory.resolve(PRODUCT_FILE));
+                    checkpoint.refresh(catalog, registry, dataDirectory);
+                    System.out.println(checkpoint.describeLastRefresh());
+                    checkpoint.save(checkpointFile);
+                    aggregation = checkpoint.toAggregation(catalog, registry, dataDirectory, options.isCube());
+                } else if (options.isMultiProcess()) {
+                    SalesShardCoordinator coordinator = new SalesShardCoordinator(options);
+                    aggregation = coordinator.aggregate(catalog, registry);
+                    System.out.println(coordinator.describe());
+                } else if (options.isPrefetch()) {
+                    SalesFilePipeline pipeline = new SalesFilePipeline(options.getReaders(),
+                            options.isParallel() ? options.getParallelism() : 1, options.getReadMemoryBudget());
+                    aggregation = pipeline.aggregate(catalog, registry, dataDirectory, options.isCube());
+                    System.out.println(pipeline.describe());
+                } else if (options.isParallel()) {
+                    System.out.println("Procesando archivos de ventas con " + options.getParallelism() + " hilos.");
+                    aggregation = SalesAggregation.aggregateParallel(catalog, registry, dataDirectory, options.getParallelism(), options.isCube());
+                } else {
+                    aggregation = SalesAggregation.aggregate(catalog, registry, dataDirectory, options.isCube());
+                }
+                aggregating.finish(aggregation.getRowsProcessed(), aggregation.getBytesRead(), aggregation.getFilesRead());
+                metrics.setSlowestFiles(aggregation.getSlowestFiles());
+            }
+            if (aggregation.hasCube()) {
+                // Las celdas ya se sumaron durante la agregación; aquí solo se ordenan y se indexan por producto
+                RunMetrics.Stage cubeBuild = metrics.start("cubo");
+                SalesCube cube = aggregation.getCube();
+                cubeBuild.finish(cube.cellCount(), 0L, 0L);
+                System.out.println(cube.describe());
+            }
 
-            HashMap<Long, Long> salesTotals = calculateSalesTotals(salesmenInfo, productPrices);
-            HashMap<String, Long> productTotals = calculateProductSales(productPrices, salesmenInfo);
+            createFinalReports(aggregation, dataDirectory, options.getFromRank(), options.getToRank(), options.getReportFormat(), options.isGzip(), metrics);
 
-            createFinalReports(salesTotals, salesmenInfo, productTotals, productDataMap);
+            writeMetrics(metrics, dataDirectory.resolve(options.getMetricsFile()));
             
             System.out.println("\n--- PROCESO COMPLETO FINALIZADO CON ÉXITO ---\n");
         } catch (Exception e) {
@@ -0,0 +1,134 @@
+package com.poli;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Catálogo de productos cargado una sola vez desde "Product.csv". Cada ID de producto
+ * recibe un índice denso, y el nombre y el precio se guardan en arreglos por índice,
+ * de modo que la agregación pueda acumular en un simple {@code long[]}.
+ */
+public class ProductCatalog {
+
+    private final LongIndexMap index;
+    private String[] names;
+    private long[] prices;
+
+    ProductCatalog(int expectedSize) {
+        index = new LongIndexMap(expectedSize);
+        names = new String[Math.max(16, expectedSize)];
+        prices = new long[names.length];
+    }
+
+    /**
+     * Lee el archivo de productos ("IDProducto;NombreProducto;PrecioPorUnidad").
+     * Si un ID aparece dos veces se conserva el último, como hacía el HashMap original.
+     *
+     * @param productFile La ruta del archivo "Product.csv".
+     * @return El catálogo; vacío si el archivo no se pudo leer.
+     */
+    public static ProductCatalog load(Path productFile) {
+        ProductCatalog catalog = new ProductCatalog(16);
+        try (BufferedReader reader = new BufferedReader(new FileReader(productFile.toFile()))) {
+            reader.readLine(); // Omitir el encabezado
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(";");
+                if (parts.length == 3) {
+                    try {
+                        catalog.put(Long.parseLong(parts[0]), parts[1], Long.parseLong(parts[2]));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Producto inválido en " + productFile + ": " + line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo " + productFile + ": " + e.getMessage());
+        }
+        return catalog;
+    }
+
+    /**
+     * Construye un catálogo sin nombres a partir de un mapa de precios, para los métodos
+     * que todavía reciben los datos como HashMap.
+     *
+     * @param productPrices El HashMap con los precios de cada producto.
+     * @return El catálogo.
+     */
+    public static ProductCatalog fromPrices(HashMap<String, Long> productPrices) {
+        ProductCatalog catalog = new ProductCatalog(productPrices.size());
+        for (Map.Entry<String, Long> entry : productPrices.entrySet()) {
+            try {
+                catalog.put(Long.parseLong(entry.getKey()), null, entry.getValue());
+            } catch (NumberFormatException e) {
+                System.err.println("ID de producto no numérico en la lista de precios: " + entry.getKey());
+            }
+        }
+        return catalog;
+    }
+
+    void put(long productId, String name, long price) {
+        int i = index.add(productId);
+        if (i == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+            prices = Arrays.copyOf(prices, prices.length * 2);
+        }
+        names[i] = name;
+        prices[i] = price;
+    }
+
+    /**
+     * @return Cantidad de productos del catálogo.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @param productId El ID del producto.
+     * @return El índice denso del producto, o -1 si no está en el catálogo.
+     */
+    public int indexOf(long productId) {
+        return index.indexOf(productId);
+    }
+
+    public long productIdAt(int productIndex) {
+        return index.keyAt(productIndex);
+    }
+
+    public String nameAt(int productIndex) {
+        return names[productIndex];
+    }
+
+    public long priceAt(int productIndex) {
+        return prices[productIndex];
+    }
+
+    /**
+     * @return Un HashMap con los IDs de los productos y sus precios.
+     */
+    public HashMap<String, Long> toPriceMap() {
+        HashMap<String, Long> productPrices = new HashMap<>();
+        for (int i = 0; i < size(); i++) {
+            productPrices.put(String.valueOf(productIdAt(i)), prices[i]);
+        }
+        return productPrices;
+    }
+
+    /**
+     * @return Un HashMap donde la clave es el ID del producto y el valor es un array con el nombre y precio.
+     */
+    public HashMap<String, String[]> toProductDataMap() {
+        HashMap<String, String[]> productData = new HashMap<>();
+        for (int i = 0; i < size(); i++) {
+            String[] productInfo = {names[i], String.valueOf(prices[i])};
+            productData.put(String.valueOf(productIdAt(i)), productInfo);
+        }
+        return productData;
+    }
+}
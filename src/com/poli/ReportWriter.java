@@ -0,0 +1,441 @@
+package com.poli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escritor de reportes fila por fila. Las filas se codifican directamente como bytes en un
+ * búfer grande que se reutiliza (los números se convierten a dígitos sin crear String) y se
+ * vuelcan al archivo en bloques. El formato concreto (CSV o JSON Lines, con o sin gzip) lo
+ * decide {@link #open}; quien escribe el reporte solo llama a {@link #beginRow()},
+ * {@link #field} y {@link #endRow()}.
+ *
+ * <p>Todo se escribe en un archivo temporal al lado del destino, que solo se renombra al
+ * llamar a {@link #commit()}: quien lea el reporte nunca ve uno a medio escribir. Si se
+ * cierra sin confirmar (por ejemplo, tras un error), el temporal se borra.</p>
+ *
+ * <pre>
+ *   try (ReportWriter writer = ReportWriter.open(file, format, gzip)) {
+ *       writer.writeHeader("Nombre", "Total");
+ *       writer.beginRow().field(name).field(total).endRow();
+ *       writer.commit();
+ *   }
+ * </pre>
+ */
+public abstract class ReportWriter implements Closeable {
+
+    /** Formatos de salida de los reportes. */
+    public enum Format {
+        /** Columnas separadas por ';' con una línea de encabezado, como siempre. */
+        CSV(".csv"),
+        /** Un objeto JSON por línea, con los nombres de columna como claves. */
+        JSONL(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return La extensión de los archivos de este formato, con el punto.
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 18;
+    /** Espacio que se asegura antes de escribir un número o un carácter suelto. */
+    private static final int MAX_NUMBER_LENGTH = 20;
+
+    private final Path file;
+    private final Path temporary;
+    private final OutputStream out;
+    /** Codifica los textos no ASCII directamente en {@link #buffer}, sin arreglos intermedios. */
+    private final CharsetEncoder encoder;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer bufferView = ByteBuffer.wrap(buffer);
+    private CharBuffer pendingChars = CharBuffer.allocate(256);
+    private int position = 0;
+    private boolean committed = false;
+
+    /** Cantidad de campos escritos en la fila actual. */
+    protected int fieldCount;
+
+    private ReportWriter(Path file, boolean gzip, Charset charset) throws IOException {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        // Reemplaza lo que no se puede codificar, igual que String.getBytes
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        OutputStream raw = Files.newOutputStream(temporary);
+        if (!gzip) {
+            this.out = raw;
+            return;
+        }
+        try {
+            this.out = new GZIPOutputStream(raw, 1 << 16);
+        } catch (IOException | RuntimeException e) {
+            try {
+                raw.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Abre un reporte para escribir.
+     *
+     * @param file La ruta final del reporte.
+     * @param format El formato.
+     * @param gzip true para comprimir la salida.
+     * @return El escritor.
+     * @throws IOException Si no se puede crear el archivo temporal.
+     */
+    public static ReportWriter open(Path file, Format format, boolean gzip) throws IOException {
+        switch (format) {
+            case JSONL:
+                return new JsonLinesReportWriter(file, gzip);
+            default:
+                return new CsvReportWriter(file, gzip);
+        }
+    }
+
+    /**
+     * @param directory El directorio del reporte.
+     * @param baseName El nombre del reporte sin extensión.
+     * @param format El formato.
+     * @param gzip true si se comprime.
+     * @return La ruta del reporte con la extensión que corresponde.
+     */
+    public static Path reportFile(Path directory, String baseName, Format format, boolean gzip) {
+        return directory.resolve(baseName + format.getExtension() + (gzip ? ".gz" : ""));
+    }
+
+    /**
+     * Escribe el encabezado (CSV) o guarda los nombres de columna (JSON Lines).
+     *
+     * @param columns Los nombres de las columnas.
+     * @throws IOException Si no se puede escribir.
+     */
+    public abstract void writeHeader(String... columns) throws IOException;
+
+    /**
+     * Empieza una fila.
+     *
+     * @return Este escritor, para encadenar los campos.
+     * @throws IOException Si no se puede escribir.
+     */
+    public abstract ReportWriter beginRow() throws IOException;
+
+    /**
+     * Agrega un campo de texto a la fila actual.
+     *
+     * @param value El texto.
+     * @return Este escritor.
+     * @throws IOException Si no se puede escribir.
+     */
+    public abstract ReportWriter field(String value) throws IOException;
+
+    /**
+     * Agrega un campo numérico a la fila actual.
+     *
+     * @param value El número.
+     * @return Este escritor.
+     * @throws IOException Si no se puede escribir.
+     */
+    public abstract ReportWriter field(long value) throws IOException;
+
+    /**
+     * Termina la fila actual.
+     *
+     * @throws IOException Si no se puede escribir.
+     */
+    public abstract void endRow() throws IOException;
+
+    /**
+     * Vuelca lo pendiente, cierra el archivo temporal y lo renombra al destino.
+     *
+     * @throws IOException Si no se puede escribir o renombrar.
+     */
+    public void commit() throws IOException {
+        flushBuffer();
+        out.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Si no se llamó a {@link #commit()}, descarta el archivo temporal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    protected void writeByte(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * Escribe un texto. Los caracteres ASCII se copian tal cual; desde el primer carácter
+     * que no lo es, el resto pasa por el codificador del juego de caracteres.
+     */
+    protected void writeText(String text) throws IOException {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int end = i + Math.min(length - i, buffer.length - position);
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    encodeText(text, i);
+                    return;
+                }
+                buffer[position++] = (byte) c;
+            }
+        }
+    }
+
+    /** Codifica {@code text} desde {@code from} directamente en el búfer, volcándolo si se llena. */
+    private void encodeText(String text, int from) throws IOException {
+        int length = text.length() - from;
+        if (pendingChars.capacity() < length) {
+            pendingChars = CharBuffer.allocate(Math.max(length, 2 * pendingChars.capacity()));
+        }
+        pendingChars.clear();
+        text.getChars(from, text.length(), pendingChars.array(), 0);
+        pendingChars.limit(length);
+        encoder.reset();
+        boolean flushing = false;
+        while (true) {
+            bufferView.clear().position(position);
+            CoderResult result = flushing ? encoder.flush(bufferView) : encoder.encode(pendingChars, bufferView, true);
+            position = bufferView.position();
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else if (flushing) {
+                return;
+            } else {
+                flushing = true;
+            }
+        }
+    }
+
+    protected void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /** Escribe un entero en ASCII sin crear un String. */
+    protected void writeNumber(long value) throws IOException {
+        if (buffer.length - position < MAX_NUMBER_LENGTH) {
+            flushBuffer();
+        }
+        if (value == Long.MIN_VALUE) {
+            writeText(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * CSV separado por ';', igual al formato original de los reportes. Usa el juego de
+     * caracteres por defecto de la plataforma, como el {@code FileWriter} que reemplaza.
+     */
+    private static class CsvReportWriter extends ReportWriter {
+
+        CsvReportWriter(Path file, boolean gzip) throws IOException {
+            super(file, gzip, Charset.defaultCharset());
+        }
+
+        @Override
+        public void writeHeader(String... columns) throws IOException {
+            beginRow();
+            for (String column : columns) {
+                field(column);
+            }
+            endRow();
+        }
+
+        @Override
+        public ReportWriter beginRow() {
+            fieldCount = 0;
+            return this;
+        }
+
+        @Override
+        public ReportWriter field(String value) throws IOException {
+            separator();
+            writeText(String.valueOf(value));
+            return this;
+        }
+
+        @Override
+        public ReportWriter field(long value) throws IOException {
+            separator();
+            writeNumber(value);
+            return this;
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            writeByte('\n');
+        }
+
+        private void separator() throws IOException {
+            if (fieldCount++ > 0) {
+                writeByte(';');
+            }
+        }
+    }
+
+    /**
+     * JSON Lines: {"columna":valor,...} por fila, en UTF-8. Las claves se codifican una sola
+     * vez al escribir el encabezado.
+     */
+    private static class JsonLinesReportWriter extends ReportWriter {
+
+        private byte[][] keys = new byte[0][];
+
+        JsonLinesReportWriter(Path file, boolean gzip) throws IOException {
+            super(file, gzip, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void writeHeader(String... columns) {
+            keys = new byte[columns.length][];
+            for (int i = 0; i < columns.length; i++) {
+                keys[i] = ("\"" + escape(columns[i]) + "\":").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        public ReportWriter beginRow() throws IOException {
+            fieldCount = 0;
+            writeByte('{');
+            return this;
+        }
+
+        @Override
+        public ReportWriter field(String value) throws IOException {
+            key();
+            if (value == null) {
+                writeText("null");
+            } else {
+                writeByte('"');
+                writeText(escape(value));
+                writeByte('"');
+            }
+            return this;
+        }
+
+        @Override
+        public ReportWriter field(long value) throws IOException {
+            key();
+            writeNumber(value);
+            return this;
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            writeByte('}');
+            writeByte('\n');
+        }
+
+        private void key() throws IOException {
+            if (fieldCount > 0) {
+                writeByte(',');
+            }
+            if (fieldCount < keys.length) {
+                writeBytes(keys[fieldCount]);
+            } else {
+                writeText("\"" + fieldCount + "\":");
+            }
+            fieldCount++;
+        }
+
+        /** Escapa comillas, barras y caracteres de control; casi siempre devuelve el mismo texto. */
+        private static String escape(String text) {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    break;
+                }
+                i++;
+            }
+            if (i == text.length()) {
+                return text;
+            }
+            StringBuilder escaped = new StringBuilder(text.length() + 8).append(text, 0, i);
+            for (; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else if (c < 0x20) {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+    }
+}
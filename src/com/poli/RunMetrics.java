@@ -0,0 +1,357 @@
+package com.poli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Mediciones de una corrida de la Etapa 2, por etapa (carga del catálogo, carga de
+ * vendedores, agregación, selección y escritura de cada reporte): tiempo, filas, bytes,
+ * archivos, tasas por segundo y memoria asignada, más los archivos de ventas más lentos.
+ *
+ * <p>Cada etapa se emite además como evento JFR ({@code com.poli.Stage}), y cada archivo de
+ * ventas que tarda más de 10 ms como {@code com.poli.SalesFile}; se ven con
+ * {@code -XX:StartFlightRecording}. Los eventos solo se crean si hay una grabación JFR
+ * activa: cargar las clases de eventos sin JFR cuesta cientos de milisegundos al arrancar.
+ * Al final de la corrida todo se escribe con
+ * {@link #write} en JSON o en el formato de texto de Prometheus.</p>
+ *
+ * <p>Las mediciones se toman una vez por etapa y una vez por archivo, nunca por fila.</p>
+ */
+public class RunMetrics {
+
+    /** Nombre por defecto del archivo de métricas, junto a los reportes. */
+    public static final String DEFAULT_FILE = "Reporte_Ventas_Metricas.json";
+    /** Cantidad de archivos lentos que se conservan. */
+    public static final int SLOWEST_FILES = 10;
+
+    private final Instant started = Instant.now();
+    private final long startedNanos = System.nanoTime();
+    private final List<Stage> stages = new ArrayList<>();
+    private SlowestFiles slowestFiles = new SlowestFiles(SLOWEST_FILES);
+
+    /**
+     * Evento JFR de una etapa de la corrida.
+     */
+    @Name("com.poli.Stage")
+    @Label("Etapa del reporte de ventas")
+    @Category("Reporte de ventas")
+    public static class StageEvent extends Event {
+        @Label("Etapa")
+        public String stage;
+        @Label("Filas")
+        public long rows;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+        @Label("Archivos")
+        public long files;
+        @Label("Memoria asignada")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    /**
+     * Evento JFR de la lectura de un archivo de ventas; solo se registran los lentos.
+     */
+    @Name("com.poli.SalesFile")
+    @Label("Archivo de ventas")
+    @Description("Lectura y agregación de un archivo de ventas")
+    @Category("Reporte de ventas")
+    @Threshold("10 ms")
+    public static class SalesFileEvent extends Event {
+        @Label("Archivo")
+        public String file;
+        @Label("Filas")
+        public long rows;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * Una etapa en curso o terminada. Se crea con {@link RunMetrics#start} y se cierra con
+     * {@link #finish}.
+     */
+    public class Stage {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = allocatedBytes();
+        private final StageEvent event = isRecording() ? new StageEvent() : null;
+        private long nanos;
+        private long rows;
+        private long bytes;
+        private long files;
+        private long allocated;
+
+        private Stage(String name) {
+            this.name = name;
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        /**
+         * Termina la etapa.
+         *
+         * @param rows Filas procesadas (0 si no aplica).
+         * @param bytes Bytes leídos o escritos (0 si no aplica).
+         * @param files Archivos procesados (0 si no aplica).
+         */
+        public void finish(long rows, long bytes, long files) {
+            this.nanos = System.nanoTime() - startNanos;
+            this.allocated = Math.max(0L, allocatedBytes() - startAllocated);
+            this.rows = rows;
+            this.bytes = bytes;
+            this.files = files;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.stage = name;
+                    event.rows = rows;
+                    event.bytes = bytes;
+                    event.files = files;
+                    event.allocatedBytes = allocated;
+                    event.commit();
+                }
+            }
+            synchronized (RunMetrics.this) {
+                stages.add(this);
+            }
+        }
+
+        private double perSecond(long count) {
+            return nanos == 0 ? 0.0 : count * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * Los archivos de ventas más lentos vistos por una agregación. Cada agregación parcial
+     * lleva el suyo y se combinan con {@link #merge}, sin sincronización por archivo.
+     */
+    public static class SlowestFiles {
+        private final Path[] files;
+        private final long[] nanos;
+        private final long[] bytes;
+        private final long[] rows;
+        private int size = 0;
+
+        public SlowestFiles(int capacity) {
+            files = new Path[capacity];
+            nanos = new long[capacity];
+            bytes = new long[capacity];
+            rows = new long[capacity];
+        }
+
+        /**
+         * Registra la lectura de un archivo si está entre los más lentos.
+         */
+        public void offer(Path file, long fileNanos, long fileBytes, long fileRows) {
+            int slot;
+            if (size < files.length) {
+                slot = size++;
+            } else {
+                slot = 0;
+                for (int i = 1; i < size; i++) {
+                    if (nanos[i] < nanos[slot]) {
+                        slot = i;
+                    }
+                }
+                if (nanos[slot] >= fileNanos) {
+                    return;
+                }
+            }
+            files[slot] = file;
+            nanos[slot] = fileNanos;
+            bytes[slot] = fileBytes;
+            rows[slot] = fileRows;
+        }
+
+        public void merge(SlowestFiles other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.files[i], other.nanos[i], other.bytes[i], other.rows[i]);
+            }
+        }
+
+        /** @return Las posiciones ordenadas de la lectura más lenta a la más rápida. */
+        private Integer[] order() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(nanos[b], nanos[a]));
+            return order;
+        }
+    }
+
+    /**
+     * @return true si hay una grabación JFR en curso (o ya se inició alguna en este proceso).
+     */
+    public static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Empieza a medir una etapa.
+     *
+     * @param name El nombre de la etapa (por ejemplo "carga_catalogo").
+     * @return La etapa, que se cierra con {@link Stage#finish}.
+     */
+    public Stage start(String name) {
+        return new Stage(name);
+    }
+
+    /**
+     * @param slowestFiles Los archivos más lentos de la agregación de esta corrida.
+     */
+    public void setSlowestFiles(SlowestFiles slowestFiles) {
+        this.slowestFiles = slowestFiles;
+    }
+
+    /**
+     * Memoria asignada hasta ahora por todos los hilos vivos. Los hilos que terminan durante
+     * una etapa dejan de contarse, así que en las etapas en paralelo es un mínimo.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return 0L;
+        }
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        long total = 0L;
+        for (long allocated : allocation.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Una línea con el tiempo total y el de cada etapa, para la consola.
+     */
+    public synchronized String describe() {
+        StringBuilder summary = new StringBuilder("Tiempo total: ")
+                .append(millis(System.nanoTime() - startedNanos)).append(" ms (");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            summary.append(i > 0 ? ", " : "").append(stage.name).append(' ').append(millis(stage.nanos)).append(" ms");
+        }
+        return summary.append(')').toString();
+    }
+
+    /**
+     * Escribe las métricas de la corrida. Si el archivo termina en ".prom" se usa el formato
+     * de texto de Prometheus; si no, JSON. Se escribe a un temporal y se renombra.
+     *
+     * @param file La ruta del archivo de métricas.
+     * @throws IOException Si no se puede escribir.
+     */
+    public synchronized void write(Path file) throws IOException {
+        long totalNanos = System.nanoTime() - startedNanos;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().endsWith(".prom")) {
+                writePrometheus(writer, totalNanos);
+            } else {
+                writeJson(writer, totalNanos);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeJson(BufferedWriter writer, long totalNanos) throws IOException {
+        writer.write("{\n  \"inicio\": \"" + started + "\",\n");
+        writer.write("  \"duracion_ms\": " + millis(totalNanos) + ",\n");
+        writer.write("  \"etapas\": [");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            writer.write(i > 0 ? ",\n    " : "\n    ");
+            writer.write("{\"nombre\": \"" + jsonEscape(stage.name) + "\""
+                    + ", \"duracion_ms\": " + millis(stage.nanos)
+                    + ", \"filas\": " + stage.rows
+                    + ", \"bytes\": " + stage.bytes
+                    + ", \"archivos\": " + stage.files
+                    + ", \"filas_por_segundo\": " + decimal(stage.perSecond(stage.rows))
+                    + ", \"bytes_por_segundo\": " + decimal(stage.perSecond(stage.bytes))
+                    + ", \"archivos_por_segundo\": " + decimal(stage.perSecond(stage.files))
+                    + ", \"bytes_asignados\": " + stage.allocated + "}");
+        }
+        writer.write("\n  ],\n  \"archivos_mas_lentos\": [");
+        Integer[] order = slowestFiles.order();
+        for (int i = 0; i < order.length; i++) {
+            int s = order[i];
+            writer.write(i > 0 ? ",\n    " : "\n    ");
+            writer.write("{\"archivo\": \"" + jsonEscape(String.valueOf(slowestFiles.files[s])) + "\""
+                    + ", \"duracion_ms\": " + millis(slowestFiles.nanos[s])
+                    + ", \"filas\": " + slowestFiles.rows[s]
+                    + ", \"bytes\": " + slowestFiles.bytes[s] + "}");
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    private void writePrometheus(BufferedWriter writer, long totalNanos) throws IOException {
+        writer.write("# HELP poli_run_duration_seconds Duración total de la corrida.\n");
+        writer.write("# TYPE poli_run_duration_seconds gauge\n");
+        writer.write("poli_run_duration_seconds " + decimal(totalNanos / 1e9) + "\n");
+        writeStageMetric(writer, "poli_stage_duration_seconds", "Duración de la etapa.", stage -> decimal(stage.nanos / 1e9));
+        writeStageMetric(writer, "poli_stage_rows", "Filas procesadas en la etapa.", stage -> Long.toString(stage.rows));
+        writeStageMetric(writer, "poli_stage_bytes", "Bytes leídos o escritos en la etapa.", stage -> Long.toString(stage.bytes));
+        writeStageMetric(writer, "poli_stage_files", "Archivos procesados en la etapa.", stage -> Long.toString(stage.files));
+        writeStageMetric(writer, "poli_stage_rows_per_second", "Filas por segundo en la etapa.", stage -> decimal(stage.perSecond(stage.rows)));
+        writeStageMetric(writer, "poli_stage_files_per_second", "Archivos por segundo en la etapa.", stage -> decimal(stage.perSecond(stage.files)));
+        writeStageMetric(writer, "poli_stage_allocated_bytes", "Memoria asignada durante la etapa.", stage -> Long.toString(stage.allocated));
+        writer.write("# HELP poli_slow_file_duration_seconds Archivos de ventas más lentos.\n");
+        writer.write("# TYPE poli_slow_file_duration_seconds gauge\n");
+        for (int s : slowestFiles.order()) {
+            writer.write("poli_slow_file_duration_seconds{file=\"" + prometheusEscape(String.valueOf(slowestFiles.files[s])) + "\"} "
+                    + decimal(slowestFiles.nanos[s] / 1e9) + "\n");
+        }
+    }
+
+    private interface StageValue {
+        String of(Stage stage);
+    }
+
+    private void writeStageMetric(BufferedWriter writer, String metric, String help, StageValue value) throws IOException {
+        writer.write("# HELP " + metric + " " + help + "\n");
+        writer.write("# TYPE " + metric + " gauge\n");
+        for (Stage stage : stages) {
+            writer.write(metric + "{stage=\"" + prometheusEscape(stage.name) + "\"} " + value.of(stage) + "\n");
+        }
+    }
+
+    private static String millis(long nanos) {
+        return decimal(nanos / 1e6);
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String jsonEscape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String prometheusEscape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
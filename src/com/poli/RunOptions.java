@@ -0,0 +1,514 @@
+package com.poli;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Opciones de ejecución de la Etapa 2 leídas desde la línea de comandos.
+ * Todas son opcionales; sin argumentos el programa se comporta como siempre
+ * (una sola pasada secuencial en el directorio actual).
+ *
+ * <pre>
+ *   --datos=DIR       Directorio con Product.csv, Salesman.csv y los archivos de ventas;
+ *                     los reportes y el checkpoint se escriben ahí mismo.
+ *   --shards=K        Los archivos de ventas están repartidos en K subdirectorios
+ *                     "ventas/NNN/" (como los deja GenerateInfoFiles --shards=K).
+ *   --paralelo        Procesa los archivos de ventas con tantos hilos como núcleos.
+ *   --paralelo=N      Procesa los archivos de ventas con N hilos.
+ *   --lectores        Lee los archivos de ventas por adelantado con 2 hilos lectores
+ *                     mientras otros los procesan (ver SalesFilePipeline); los hilos de
+ *                     cálculo son los de --paralelo, o uno solo.
+ *   --lectores=N      Igual, con N hilos lectores.
+ *   --memoria-lectura=MB  Memoria para los archivos leídos por adelantado (por defecto 64).
+ *   --incremental     Reutiliza el checkpoint de la corrida anterior y solo lee los
+ *                     archivos nuevos o lo agregado al final de los existentes.
+ *   --incremental=RUTA  Igual, con el checkpoint en la ruta indicada.
+ *   --ingestar        Convierte los CSV al almacén binario (ver SalesStore) y genera los
+ *                     reportes desde él.
+ *   --ingestar=RUTA   Igual, con el almacén en la ruta indicada.
+ *   --almacen         Genera los reportes desde el almacén ya ingerido, sin leer los CSV.
+ *   --almacen=RUTA    Igual, con el almacén en la ruta indicada.
+ *   --verificar       Con --almacen, verifica también el CRC de las filas y avisa si
+ *                     cambió algún archivo de ventas desde la ingesta (lee el almacén
+ *                     entero y revisa cada archivo).
+ *   --top=N           Escribe en los reportes solo las N primeras posiciones.
+ *   --rango=A-B       Escribe solo las posiciones A a B (desde 1, ambas incluidas).
+ *   --pagina=P        Escribe solo la página P (desde 1) de los reportes.
+ *   --tamano-pagina=S Tamaño de página para --pagina (por defecto 100).
+ *   --formato=F       Formato de los reportes: csv (por defecto) o jsonl.
+ *   --gzip            Comprime los reportes (agrega ".gz" al nombre).
+ *   --vigilar         Queda corriendo y regenera los reportes cada vez que llegan o cambian
+ *                     archivos de ventas (ver SalesWatcher).
+ *   --espera=MS       En --vigilar, milisegundos sin cambios antes de regenerar (por
+ *                     defecto 2000).
+ *   --cubo            Arma además el cubo vendedor × producto (ver SalesCube) e informa
+ *                     cuánta memoria ocupa.
+ *   --externo         Calcula los reportes con memoria acotada, volcando a disco lo que no
+ *                     cabe en 64 MB (ver ExternalSalesReport); sirve cuando los vendedores
+ *                     no caben en el heap.
+ *   --externo=MB      Igual, con MB megabytes antes de volcar a disco.
+ *   --procesos=N      Reparte los vendedores entre N procesos trabajadores y combina sus
+ *                     resultados parciales (ver SalesShardCoordinator); cada trabajador
+ *                     usa los hilos de --paralelo, o uno solo.
+ *   --particiones=S   En --procesos, cantidad de particiones de vendedores (por defecto,
+ *                     una por proceso).
+ *   --reintentos=R    En --procesos, veces que se relanza una partición fallida (por
+ *                     defecto 2).
+ *   --limite-trabajador=SEG  En --procesos, segundos que puede tardar cada intento de un
+ *                     trabajador; si se pasa se lo mata y la partición se reintenta (por
+ *                     defecto sin límite).
+ *   --trabajador=P/S  Uso interno de --procesos: agrega solo la partición P de S y
+ *   --parcial=RUTA    escribe el resultado parcial en RUTA, sin generar reportes.
+ *   --metricas=RUTA   Archivo de métricas de la corrida (por defecto
+ *                     Reporte_Ventas_Metricas.json); si termina en ".prom" se escribe en
+ *                     el formato de texto de Prometheus.
+ * </pre>
+ */
+public class RunOptions {
+
+    private Path dataDirectory = Main.CURRENT_DIRECTORY;
+    private int salesShards = 0;
+    private boolean parallel = false;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int readers = 0;
+    private long readMemoryBudget = SalesFilePipeline.DEFAULT_MEMORY_BUDGET;
+    private String checkpointFile = null;
+    private String storeFile = null;
+    private boolean ingest = false;
+    private boolean verifyStore = false;
+    private int fromRank = 1;
+    private int toRank = Integer.MAX_VALUE;
+    private int page = 0;
+    private int pageSize = 100;
+    private ReportWriter.Format reportFormat = ReportWriter.Format.CSV;
+    private boolean gzip = false;
+    private String metricsFile = RunMetrics.DEFAULT_FILE;
+    private boolean watch = false;
+    private int debounceMillis = 2000;
+    private boolean cube = false;
+    private long externalMemoryBudget = 0L;
+    private int processes = 0;
+    private int partitions = 0;
+    private int retries = SalesShardCoordinator.DEFAULT_RETRIES;
+    private int workerTimeoutSeconds = 0;
+    private int workerPartition = 0;
+    private int workerPartitions = 0;
+    private Path partialFile = null;
+
+    /**
+     * Interpreta los argumentos recibidos por {@code main}.
+     *
+     * @param args Los argumentos de la línea de comandos.
+     * @return Las opciones de ejecución.
+     * @throws IllegalArgumentException Si algún argumento no es válido.
+     */
+    public static RunOptions parse(String[] args) {
+        RunOptions options = new RunOptions();
+        for (String arg : args) {
+            String name = arg;
+            String value = null;
+            int equals = arg.indexOf('=');
+            if (equals >= 0) {
+                name = arg.substring(0, equals);
+                value = arg.substring(equals + 1);
+            }
+            switch (name) {
+                case "--datos":
+                    options.dataDirectory = Paths.get(requireValue(name, value));
+                    break;
+                case "--shards":
+                    options.salesShards = parsePositiveInt(name, value);
+                    break;
+                case "--paralelo":
+                    options.parallel = true;
+                    if (value != null) {
+                        options.parallelism = parsePositiveInt(name, value);
+                    }
+                    break;
+                case "--lectores":
+                    options.readers = value != null ? parsePositiveInt(name, value) : SalesFilePipeline.DEFAULT_READERS;
+                    break;
+                case "--memoria-lectura":
+                    options.readMemoryBudget = parsePositiveInt(name, value) * 1024L * 1024L;
+                    break;
+                case "--incremental":
+                    options.checkpointFile = value != null ? value : SalesCheckpoint.DEFAULT_FILE;
+                    break;
+                case "--ingestar":
+                    options.storeFile = value != null ? value : SalesStore.DEFAULT_FILE;
+                    options.ingest = true;
+                    break;
+                case "--almacen":
+                    options.storeFile = value != null ? value : SalesStore.DEFAULT_FILE;
+                    options.ingest = false;
+                    break;
+                case "--verificar":
+                    options.verifyStore = true;
+                    break;
+                case "--top":
+                    options.fromRank = 1;
+                    options.toRank = parsePositiveInt(name, value);
+                    break;
+                case "--rango":
+                    int dash = value == null ? -1 : value.indexOf('-');
+                    if (dash < 0) {
+                        throw new IllegalArgumentException("El valor de --rango debe tener la forma A-B: " + value);
+                    }
+                    options.fromRank = parsePositiveInt(name, value.substring(0, dash));
+                    options.toRank = parsePositiveInt(name, value.substring(dash + 1));
+                    if (options.toRank < options.fromRank) {
+                        throw new IllegalArgumentException("En --rango el final no puede ser menor que el inicio: " + value);
+                    }
+                    break;
+                case "--pagina":
+                    options.page = parsePositiveInt(name, value);
+                    break;
+                case "--tamano-pagina":
+                    options.pageSize = parsePositiveInt(name, value);
+                    break;
+                case "--formato":
+                    switch (requireValue(name, value)) {
+                        case "csv":
+                            options.reportFormat = ReportWriter.Format.CSV;
+                            break;
+                        case "jsonl":
+                            options.reportFormat = ReportWriter.Format.JSONL;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("El valor de --formato debe ser csv o jsonl: " + value);
+                    }
+                    break;
+                case "--gzip":
+                    options.gzip = true;
+                    break;
+                case "--vigilar":
+                    options.watch = true;
+                    break;
+                case "--espera":
+                    options.debounceMillis = parsePositiveInt(name, value);
+                    break;
+                case "--cubo":
+                    options.cube = true;
+                    break;
+                case "--externo":
+                    options.externalMemoryBudget = value != null ? parsePositiveInt(name, value) * 1024L * 1024L : ExternalSalesReport.DEFAULT_MEMORY_BUDGET;
+                    break;
+                case "--procesos":
+                    options.processes = parsePositiveInt(name, value);
+                    break;
+                case "--particiones":
+                    options.partitions = parsePositiveInt(name, value);
+                    break;
+                case "--reintentos":
+                    options.retries = parseNonNegativeInt(name, value);
+                    break;
+                case "--limite-trabajador":
+                    options.workerTimeoutSeconds = parsePositiveInt(name, value);
+                    break;
+                case "--trabajador":
+                    int slash = value == null ? -1 : value.indexOf('/');
+                    if (slash < 0) {
+                        throw new IllegalArgumentException("El valor de --trabajador debe tener la forma P/S: " + value);
+                    }
+                    options.workerPartition = parsePositiveInt(name, value.substring(0, slash));
+                    options.workerPartitions = parsePositiveInt(name, value.substring(slash + 1));
+                    if (options.workerPartition > options.workerPartitions) {
+                        throw new IllegalArgumentException("En --trabajador la partición no puede ser mayor que el total: " + value);
+                    }
+                    break;
+                case "--parcial":
+                    options.partialFile = Paths.get(requireValue(name, value));
+                    break;
+                case "--metricas":
+                    options.metricsFile = requireValue(name, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argumento desconocido: " + arg);
+            }
+        }
+        if (options.storeFile != null && options.checkpointFile != null) {
+            throw new IllegalArgumentException("--incremental no se puede combinar con --ingestar ni con --almacen.");
+        }
+        if (options.readers > 0 && (options.storeFile != null || options.checkpointFile != null)) {
+            throw new IllegalArgumentException("--lectores no se puede combinar con --incremental, --ingestar ni --almacen.");
+        }
+        if (options.watch && (options.storeFile != null || options.parallel || options.readers > 0)) {
+            throw new IllegalArgumentException("--vigilar no se puede combinar con --ingestar, --almacen, --paralelo ni --lectores.");
+        }
+        if (options.externalMemoryBudget > 0 && (options.storeFile != null || options.checkpointFile != null
+                || options.watch || options.cube || options.readers > 0 || options.parallel)) {
+            throw new IllegalArgumentException("--externo no se puede combinar con --incremental, --ingestar, --almacen, --vigilar, --cubo, --lectores ni --paralelo.");
+        }
+        if (options.processes > 0 && (options.storeFile != null || options.checkpointFile != null
+                || options.watch || options.cube || options.readers > 0 || options.externalMemoryBudget > 0)) {
+            throw new IllegalArgumentException("--procesos no se puede combinar con --incremental, --ingestar, --almacen, --vigilar, --cubo, --lectores ni --externo.");
+        }
+        if (options.verifyStore && (options.storeFile == null || options.ingest)) {
+            throw new IllegalArgumentException("--verificar requiere --almacen.");
+        }
+        if (options.workerPartition > 0 && options.partialFile == null) {
+            throw new IllegalArgumentException("--trabajador requiere --parcial=RUTA.");
+        }
+        if (options.page > 0) {
+            long first = (long) (options.page - 1) * options.pageSize + 1;
+            options.fromRank = (int) Math.min(first, Integer.MAX_VALUE);
+            options.toRank = (int) Math.min(first + options.pageSize - 1, Integer.MAX_VALUE);
+        }
+        return options;
+    }
+
+    static String requireValue(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("La opción " + name + " requiere un valor: " + name + "=...");
+        }
+        return value;
+    }
+
+    static int parsePositiveInt(String name, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Se reporta abajo con el nombre de la opción
+        }
+        throw new IllegalArgumentException("El valor de " + name + " debe ser un entero positivo: " + value);
+    }
+
+    static int parseNonNegativeInt(String name, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Se reporta abajo con el nombre de la opción
+        }
+        throw new IllegalArgumentException("El valor de " + name + " debe ser un entero mayor o igual a 0: " + value);
+    }
+
+    /**
+     * @return El directorio de los datos de entrada y de los reportes.
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * @return La cantidad de shards de los archivos de ventas, o 0 si están todos juntos.
+     */
+    public int getSalesShards() {
+        return salesShards;
+    }
+
+    /**
+     * @return true si se pidió la agregación en paralelo.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return Número de hilos a usar en modo paralelo.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return true si se pidió el modo incremental.
+     */
+    public boolean isIncremental() {
+        return checkpointFile != null;
+    }
+
+    /**
+     * @return La ruta del checkpoint del modo incremental, o null si no se pidió.
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @return true si se pidió convertir los CSV al almacén binario.
+     */
+    public boolean isIngest() {
+        return storeFile != null && ingest;
+    }
+
+    /**
+     * @return true si los reportes se calculan desde el almacén binario ya ingerido.
+     */
+    public boolean isFromStore() {
+        return storeFile != null && !ingest;
+    }
+
+    /**
+     * @return La ruta del almacén binario, o null si no se pidió.
+     */
+    public String getStoreFile() {
+        return storeFile;
+    }
+
+    /**
+     * @return true si al abrir el almacén se verifican también las filas y los archivos de ventas.
+     */
+    public boolean isVerifyStore() {
+        return verifyStore;
+    }
+
+    /**
+     * @return La primera posición de los rankings que se escribe en los reportes (desde 1).
+     */
+    public int getFromRank() {
+        return fromRank;
+    }
+
+    /**
+     * @return La última posición de los rankings que se escribe en los reportes.
+     */
+    public int getToRank() {
+        return toRank;
+    }
+
+    /**
+     * @return El formato de los reportes.
+     */
+    public ReportWriter.Format getReportFormat() {
+        return reportFormat;
+    }
+
+    /**
+     * @return true si los reportes se comprimen con gzip.
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * @return La ruta del archivo de métricas de la corrida.
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * @return true si los archivos de ventas se leen por adelantado en hilos lectores aparte.
+     */
+    public boolean isPrefetch() {
+        return readers > 0;
+    }
+
+    /**
+     * @return Cantidad de hilos lectores para la lectura anticipada.
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * @return Bytes de memoria para los archivos leídos por adelantado.
+     */
+    public long getReadMemoryBudget() {
+        return readMemoryBudget;
+    }
+
+    /**
+     * @return true si se pidió el modo vigilante.
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * @return Milisegundos sin cambios que espera el modo vigilante antes de regenerar los reportes.
+     */
+    public int getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * @return true si se pidió armar el cubo vendedor × producto.
+     */
+    public boolean isCube() {
+        return cube;
+    }
+
+    /**
+     * @return true si los reportes se calculan con memoria acotada, volcando a disco.
+     */
+    public boolean isExternal() {
+        return externalMemoryBudget > 0;
+    }
+
+    /**
+     * @return Bytes de memoria del modo externo antes de volcar a disco.
+     */
+    public long getExternalMemoryBudget() {
+        return externalMemoryBudget;
+    }
+
+    /**
+     * @return true si la agregación se reparte entre varios procesos trabajadores.
+     */
+    public boolean isMultiProcess() {
+        return processes > 0;
+    }
+
+    /**
+     * @return Cantidad de procesos trabajadores que se mantienen en marcha a la vez.
+     */
+    public int getProcesses() {
+        return processes;
+    }
+
+    /**
+     * @return Cantidad de particiones de vendedores (por defecto, una por proceso).
+     */
+    public int getPartitions() {
+        return partitions > 0 ? partitions : processes;
+    }
+
+    /**
+     * @return Veces que se relanza una partición cuyo trabajador falló.
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return Segundos que puede tardar cada intento de un trabajador, o 0 si no hay límite.
+     */
+    public int getWorkerTimeoutSeconds() {
+        return workerTimeoutSeconds;
+    }
+
+    /**
+     * @return true si este proceso es un trabajador lanzado por {@link SalesShardCoordinator}.
+     */
+    public boolean isShardWorker() {
+        return workerPartition > 0;
+    }
+
+    /**
+     * @return La partición (desde 1) que agrega este trabajador.
+     */
+    public int getWorkerPartition() {
+        return workerPartition;
+    }
+
+    /**
+     * @return Cantidad total de particiones, para este trabajador.
+     */
+    public int getWorkerPartitions() {
+        return workerPartitions;
+    }
+
+    /**
+     * @return La ruta donde este trabajador escribe su resultado parcial.
+     */
+    public Path getPartialFile() {
+        return partialFile;
+    }
+}
@@ -0,0 +1,657 @@
+package com.poli;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Resultado de una única pasada de agregación sobre los archivos de ventas.
+ * Cada archivo "Sales_<TipoDoc>_<NumDoc>.csv" se abre y se lee una sola vez, y de
+ * esa lectura salen a la vez el total vendido por vendedor y la cantidad vendida
+ * de cada producto.
+ *
+ * <p>Las filas se leen con {@link SalesFileParser} y se acumulan en arreglos primitivos
+ * indexados por los índices densos de {@link SalesmanRegistry} y {@link ProductCatalog},
+ * de modo que el ciclo de lectura no crea objetos por fila.</p>
+ *
+ * <p>Si se pide, la misma pasada arma además el cubo vendedor × producto
+ * ({@link SalesCube}).</p>
+ */
+public class SalesAggregation {
+
+    private final ProductCatalog catalog;
+    private final SalesmanRegistry registry;
+    private final Path dataDirectory;
+    /** Índice del primer vendedor de {@link #salesmanTotals}: una parcial solo guarda su rango. */
+    private final int firstSalesman;
+    private final long[] salesmanTotals;
+    private final boolean[] salesmanProcessed;
+    private final long[] productQuantities;
+    private final boolean[] productSold;
+    private HashMap<Long, Long> unknownProductTotals;
+    private long filesRead = 0L;
+    private long rowsProcessed = 0L;
+    private long malformedRows = 0L;
+    private long bytesRead = 0L;
+    private final RunMetrics.SlowestFiles slowestFiles = new RunMetrics.SlowestFiles(RunMetrics.SLOWEST_FILES);
+    private SalesCube.Builder cubeBuilder;
+    private SalesCube cube;
+
+    private final SalesFileParser parser = new SalesFileParser();
+    private final SalesFileParser.RowHandler rowHandler = new SalesFileParser.RowHandler() {
+        @Override
+        public void onRow(long productId, int quantity) {
+            addRow(productId, quantity);
+        }
+    };
+    private long currentSalesmanTotal;
+
+    /**
+     * Crea una agregación vacía.
+     *
+     * @param catalog El catálogo de productos de la corrida.
+     * @param registry El registro de vendedores de la corrida.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     */
+    public SalesAggregation(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory) {
+        this(catalog, registry, dataDirectory, 0, registry.size());
+    }
+
+    /**
+     * Crea una agregación vacía que solo acepta los vendedores de índice {@code from} a
+     * {@code to - 1}; sus arreglos por vendedor tienen el tamaño del rango y no el del
+     * registro completo.
+     */
+    SalesAggregation(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int from, int to) {
+        this.catalog = catalog;
+        this.registry = registry;
+        this.dataDirectory = dataDirectory;
+        this.firstSalesman = from;
+        this.salesmanTotals = new long[to - from];
+        this.salesmanProcessed = new boolean[to - from];
+        this.productQuantities = new long[catalog.size()];
+        this.productSold = new boolean[catalog.size()];
+    }
+
+    /**
+     * Crea una parcial que escribe los totales por vendedor directamente en los arreglos de
+     * {@code shared} y acumula aparte solo los productos y los contadores. Sirve cuando varios
+     * hilos se reparten los vendedores sin rangos fijos (ver {@link SalesFilePipeline}): cada
+     * vendedor lo procesa un solo hilo, así que nunca escriben la misma posición, y
+     * {@link #merge} no vuelve a sumar los totales por vendedor.
+     */
+    private SalesAggregation(SalesAggregation shared) {
+        this.catalog = shared.catalog;
+        this.registry = shared.registry;
+        this.dataDirectory = shared.dataDirectory;
+        this.firstSalesman = shared.firstSalesman;
+        this.salesmanTotals = shared.salesmanTotals;
+        this.salesmanProcessed = shared.salesmanProcessed;
+        this.productQuantities = new long[catalog.size()];
+        this.productSold = new boolean[catalog.size()];
+    }
+
+    /**
+     * @return Una parcial que comparte con esta los totales por vendedor (ver el constructor).
+     */
+    SalesAggregation newSharedPartial() {
+        return new SalesAggregation(this);
+    }
+
+    /**
+     * Recorre todos los vendedores y acumula sus archivos de ventas en una sola pasada.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @return La agregación con los totales por vendedor y por producto.
+     */
+    public static SalesAggregation aggregate(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory) {
+        return aggregate(catalog, registry, dataDirectory, false);
+    }
+
+    /**
+     * Igual que {@link #aggregate(ProductCatalog, SalesmanRegistry, Path)}, armando además
+     * el cubo vendedor × producto si se pide.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param buildCube true para armar también el cubo (ver {@link #getCube()}).
+     * @return La agregación con los totales por vendedor y por producto.
+     */
+    public static SalesAggregation aggregate(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, boolean buildCube) {
+        SalesAggregation aggregation = new SalesAggregation(catalog, registry, dataDirectory);
+        if (buildCube) {
+            aggregation.enableCube();
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            aggregation.addSalesFile(i);
+        }
+        return aggregation;
+    }
+
+    /**
+     * Versión paralela de {@link #aggregate}: reparte los vendedores entre los hilos de un
+     * ForkJoinPool; cada tarea acumula en su propia agregación parcial (sin compartir estado
+     * entre hilos) y los parciales se combinan con {@link #merge} al terminar.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param parallelism Número de hilos de trabajo.
+     * @return La agregación con los totales por vendedor y por producto.
+     */
+    public static SalesAggregation aggregateParallel(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int parallelism) {
+        return aggregateParallel(catalog, registry, dataDirectory, parallelism, false);
+    }
+
+    /**
+     * Igual que {@link #aggregateParallel(ProductCatalog, SalesmanRegistry, Path, int)};
+     * con {@code buildCube} cada tarea arma además su parte del cubo.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param parallelism Número de hilos de trabajo.
+     * @param buildCube true para armar también el cubo (ver {@link #getCube()}).
+     * @return La agregación con los totales por vendedor y por producto.
+     */
+    public static SalesAggregation aggregateParallel(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int parallelism, boolean buildCube) {
+        // Unos pocos bloques por hilo bastan para balancear la carga sin multiplicar los parciales
+        int threshold = Math.max(64, registry.size() / (parallelism * 4));
+        return aggregateInPool(catalog, registry, dataDirectory, 0, registry.size(), parallelism, threshold, buildCube);
+    }
+
+    /**
+     * Agrega solo los vendedores de índice {@code from} a {@code to - 1}, como lo hace cada
+     * proceso de {@link SalesShardCoordinator} con su partición.
+     *
+     * @param parallelism Número de hilos de trabajo (1 para recorrerlos en este hilo).
+     * @return La agregación, con totales solo para los vendedores del rango.
+     */
+    static SalesAggregation aggregateRange(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int from, int to, int parallelism) {
+        if (parallelism <= 1) {
+            SalesAggregation aggregation = new SalesAggregation(catalog, registry, dataDirectory, from, to);
+            for (int i = from; i < to; i++) {
+                aggregation.addSalesFile(i);
+            }
+            return aggregation;
+        }
+        int threshold = Math.max(64, (to - from) / (parallelism * 4));
+        return aggregateInPool(catalog, registry, dataDirectory, from, to, parallelism, threshold, false);
+    }
+
+    /**
+     * Reparte el rango entre los hilos de un ForkJoinPool y suma los bloques, en orden, en
+     * una agregación del mismo rango: cada vendedor se copia una sola vez.
+     */
+    private static SalesAggregation aggregateInPool(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory,
+                                                    int from, int to, int parallelism, int threshold, boolean buildCube) {
+        List<SalesAggregation> blocks;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            blocks = pool.invoke(new PartialAggregationTask(catalog, registry, dataDirectory, from, to, threshold, buildCube));
+        } finally {
+            pool.shutdown();
+        }
+        SalesAggregation result = new SalesAggregation(catalog, registry, dataDirectory, from, to);
+        if (buildCube) {
+            result.enableCube();
+        }
+        for (SalesAggregation block : blocks) {
+            result.merge(block);
+        }
+        return result;
+    }
+
+    /**
+     * Tarea que divide el rango de vendedores a la mitad hasta llegar a bloques pequeños,
+     * que se agregan de forma secuencial, cada uno en una parcial con solo su rango. Devuelve
+     * los bloques en orden de vendedor, sin combinarlos.
+     */
+    private static class PartialAggregationTask extends RecursiveTask<List<SalesAggregation>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ProductCatalog catalog;
+        private final SalesmanRegistry registry;
+        private final Path dataDirectory;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final boolean buildCube;
+
+        PartialAggregationTask(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int from, int to, int threshold, boolean buildCube) {
+            this.catalog = catalog;
+            this.registry = registry;
+            this.dataDirectory = dataDirectory;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.buildCube = buildCube;
+        }
+
+        @Override
+        protected List<SalesAggregation> compute() {
+            if (to - from <= threshold) {
+                SalesAggregation partial = new SalesAggregation(catalog, registry, dataDirectory, from, to);
+                if (buildCube) {
+                    partial.enableCube();
+                }
+                for (int i = from; i < to; i++) {
+                    partial.addSalesFile(i);
+                }
+                if (partial.cubeBuilder != null) {
+                    partial.cubeBuilder.compact(); // Hasta la combinación solo hacen falta sus celdas
+                }
+                List<SalesAggregation> blocks = new ArrayList<>();
+                blocks.add(partial);
+                return blocks;
+            }
+            int middle = (from + to) >>> 1;
+            PartialAggregationTask left = new PartialAggregationTask(catalog, registry, dataDirectory, from, middle, threshold, buildCube);
+            PartialAggregationTask right = new PartialAggregationTask(catalog, registry, dataDirectory, middle, to, threshold, buildCube);
+            right.fork();
+            List<SalesAggregation> blocks = left.compute();
+            blocks.addAll(right.join());
+            return blocks;
+        }
+    }
+
+    /**
+     * Suma en esta agregación los totales de otra agregación parcial construida con el
+     * mismo catálogo y registro. Solo se recorre el rango de vendedores de la otra, que debe
+     * estar dentro del de esta.
+     *
+     * @param other La agregación parcial a combinar.
+     */
+    public void merge(SalesAggregation other) {
+        if (other.salesmanTotals != salesmanTotals) {
+            int offset = other.firstSalesman - firstSalesman;
+            if (offset < 0 || offset + other.salesmanTotals.length > salesmanTotals.length) {
+                throw new IllegalArgumentException("La agregación parcial tiene vendedores fuera del rango de esta.");
+            }
+            for (int i = 0; i < other.salesmanTotals.length; i++) {
+                salesmanTotals[offset + i] += other.salesmanTotals[i];
+                salesmanProcessed[offset + i] |= other.salesmanProcessed[i];
+            }
+        }
+        for (int i = 0; i < productQuantities.length; i++) {
+            productQuantities[i] += other.productQuantities[i];
+            productSold[i] |= other.productSold[i];
+        }
+        if (other.unknownProductTotals != null) {
+            for (Map.Entry<Long, Long> entry : other.unknownProductTotals.entrySet()) {
+                unknownProducts().merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+        filesRead += other.filesRead;
+        rowsProcessed += other.rowsProcessed;
+        malformedRows += other.malformedRows;
+        bytesRead += other.bytesRead;
+        slowestFiles.merge(other.slowestFiles);
+        if (cubeBuilder != null && other.cubeBuilder != null) {
+            cubeBuilder.merge(other.cubeBuilder);
+        }
+    }
+
+    /**
+     * Escribe lo acumulado para los vendedores {@code from} a {@code to - 1} en forma
+     * compacta: sus totales, solo los productos vendidos (por índice del catálogo), los
+     * productos desconocidos y los contadores de lectura. Se lee con {@link #mergePartial}
+     * en una agregación con el mismo catálogo y registro.
+     */
+    void writePartial(DataOutput out, int from, int to) throws IOException {
+        out.writeInt(from);
+        out.writeInt(to);
+        for (int i = from; i < to; i++) {
+            out.writeLong(salesmanTotals[i - firstSalesman]);
+        }
+        int sold = 0;
+        for (boolean productWasSold : productSold) {
+            if (productWasSold) {
+                sold++;
+            }
+        }
+        out.writeInt(sold);
+        for (int i = 0; i < productQuantities.length; i++) {
+            if (productSold[i]) {
+                out.writeInt(i);
+                out.writeLong(productQuantities[i]);
+            }
+        }
+        Map<Long, Long> unknown = unknownProductTotals != null ? unknownProductTotals : Map.of();
+        out.writeInt(unknown.size());
+        for (Map.Entry<Long, Long> entry : unknown.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeLong(filesRead);
+        out.writeLong(rowsProcessed);
+        out.writeLong(malformedRows);
+        out.writeLong(bytesRead);
+    }
+
+    /**
+     * Suma en esta agregación un parcial escrito con {@link #writePartial}; equivale a
+     * {@link #merge} con la agregación que lo escribió.
+     *
+     * @throws IOException Si no se puede leer o no corresponde a este catálogo y registro.
+     */
+    void mergePartial(DataInput in) throws IOException {
+        int from = in.readInt();
+        int to = in.readInt();
+        if (from < firstSalesman || to > firstSalesman + salesmanTotals.length || from > to) {
+            throw new IOException("El rango de vendedores " + from + "-" + to + " del parcial no corresponde al registro.");
+        }
+        for (int i = from - firstSalesman; i < to - firstSalesman; i++) {
+            salesmanTotals[i] += in.readLong();
+            salesmanProcessed[i] = true;
+        }
+        int sold = in.readInt();
+        for (int p = 0; p < sold; p++) {
+            int index = in.readInt();
+            if (index < 0 || index >= productQuantities.length) {
+                throw new IOException("El producto " + index + " del parcial no corresponde al catálogo.");
+            }
+            productQuantities[index] += in.readLong();
+            productSold[index] = true;
+        }
+        int unknown = in.readInt();
+        for (int p = 0; p < unknown; p++) {
+            long productId = in.readLong();
+            unknownProducts().merge(productId, in.readLong(), Long::sum);
+        }
+        filesRead += in.readLong();
+        rowsProcessed += in.readLong();
+        malformedRows += in.readLong();
+        bytesRead += in.readLong();
+    }
+
+    /**
+     * Lee el archivo de ventas de un vendedor y suma sus filas a los dos totales.
+     * Si el archivo no se puede leer, el vendedor queda registrado con lo que se
+     * alcanzó a acumular (normalmente 0), igual que en el cálculo original. Las filas
+     * con formato inválido se reportan con su número de línea y se omiten.
+     *
+     * @param salesmanIndex El índice del vendedor en el registro.
+     */
+    public void addSalesFile(int salesmanIndex) {
+        addSalesFile(salesmanIndex, null, 0L);
+    }
+
+    /**
+     * Igual que {@link #addSalesFile(int)}, pero con el contenido del archivo ya leído.
+     *
+     * @param salesmanIndex El índice del vendedor en el registro.
+     * @param content El contenido completo del archivo, o null para leerlo aquí.
+     * @param readNanos Lo que tardó la lectura del contenido, para las métricas por archivo.
+     */
+    void addSalesFile(int salesmanIndex, ByteBuffer content, long readNanos) {
+        Path file = registry.salesFile(dataDirectory, salesmanIndex);
+        currentSalesmanTotal = 0L;
+        if (cubeBuilder != null) {
+            cubeBuilder.beginSalesman(salesmanIndex);
+        }
+        // Se mide por archivo, no por fila: dos lecturas del reloj por archivo abierto
+        RunMetrics.SalesFileEvent event = RunMetrics.isRecording() ? new RunMetrics.SalesFileEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime() - readNanos;
+        try {
+            long rows = content == null ? parser.parse(file, rowHandler) : parser.parse(file, content, rowHandler);
+            long bytes = parser.getEndOffset();
+            rowsProcessed += rows;
+            bytesRead += bytes;
+            filesRead++;
+            slowestFiles.offer(file, System.nanoTime() - start, bytes, rows);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.file = file.toString();
+                    event.rows = rows;
+                    event.bytes = bytes;
+                    event.commit();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de ventas " + file + ": " + e.getMessage());
+        }
+        malformedRows += parser.getMalformedRows();
+        if (cubeBuilder != null) {
+            cubeBuilder.endSalesman();
+        }
+        salesmanTotals[salesmanIndex - firstSalesman] += currentSalesmanTotal;
+        salesmanProcessed[salesmanIndex - firstSalesman] = true;
+    }
+
+    /**
+     * Registra un vendedor cuyo archivo de ventas no se pudo leer (el error ya se informó):
+     * queda con total 0, igual que en {@link #addSalesFile(int)}.
+     */
+    void addUnreadSalesFile(int salesmanIndex) {
+        salesmanProcessed[salesmanIndex - firstSalesman] = true;
+    }
+
+    private void addRow(long productId, int quantity) {
+        int index = catalog.indexOf(productId);
+        if (index >= 0) {
+            currentSalesmanTotal += (long) quantity * catalog.priceAt(index);
+            productQuantities[index] += quantity;
+            productSold[index] = true;
+            if (cubeBuilder != null) {
+                cubeBuilder.add(index, quantity);
+            }
+        } else {
+            unknownProducts().merge(productId, (long) quantity, Long::sum);
+        }
+    }
+
+    /**
+     * Registra el total ya calculado de un vendedor, sin leer su archivo (por ejemplo,
+     * cuando el total viene de un checkpoint).
+     */
+    void putSalesmanTotal(int salesmanIndex, long total) {
+        salesmanTotals[salesmanIndex - firstSalesman] = total;
+        salesmanProcessed[salesmanIndex - firstSalesman] = true;
+    }
+
+    /**
+     * Suma una cantidad ya calculada a un producto, esté o no en el catálogo.
+     */
+    void addProductQuantity(long productId, long quantity) {
+        int index = catalog.indexOf(productId);
+        if (index >= 0) {
+            productQuantities[index] += quantity;
+            productSold[index] = true;
+        } else {
+            unknownProducts().merge(productId, quantity, Long::sum);
+        }
+    }
+
+    /**
+     * Suma contadores de lectura calculados fuera de esta agregación.
+     */
+    void addCounters(long files, long rows, long malformed) {
+        filesRead += files;
+        rowsProcessed += rows;
+        malformedRows += malformed;
+    }
+
+    /**
+     * Suma bytes leídos fuera de esta agregación (por ejemplo, de un almacén binario).
+     */
+    void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * Pide que esta agregación arme también el cubo vendedor × producto. Debe llamarse antes
+     * de agregar datos.
+     */
+    void enableCube() {
+        enableCube(1024);
+    }
+
+    /**
+     * Igual que {@link #enableCube()}, reservando de una vez lugar para las celdas esperadas.
+     */
+    void enableCube(long expectedCells) {
+        // Con el mismo rango de vendedores que la agregación
+        cubeBuilder = new SalesCube.Builder(catalog, registry, firstSalesman, firstSalesman + salesmanTotals.length, expectedCells);
+    }
+
+    /**
+     * @return El constructor del cubo, o null si no se pidió; para quien agrega los totales
+     *         sin leer los archivos (almacén binario, checkpoint).
+     */
+    SalesCube.Builder getCubeBuilder() {
+        return cubeBuilder;
+    }
+
+    /**
+     * @return true si esta agregación arma el cubo vendedor × producto.
+     */
+    public boolean hasCube() {
+        return cubeBuilder != null || cube != null;
+    }
+
+    /**
+     * Devuelve el cubo vendedor × producto. La primera llamada lo termina de armar
+     * (ordena las filas y calcula el índice por producto); después de eso ya no se le
+     * suman más archivos.
+     *
+     * @return El cubo, o null si la agregación no lo armó.
+     */
+    public SalesCube getCube() {
+        if (cube == null && cubeBuilder != null) {
+            cube = cubeBuilder.build();
+            cubeBuilder = null;
+        }
+        return cube;
+    }
+
+    private HashMap<Long, Long> unknownProducts() {
+        if (unknownProductTotals == null) {
+            unknownProductTotals = new HashMap<>();
+        }
+        return unknownProductTotals;
+    }
+
+    /**
+     * @return Un HashMap donde la clave es el número de documento del vendedor y el valor es su total de ventas.
+     */
+    public HashMap<Long, Long> getSalesTotals() {
+        HashMap<Long, Long> salesTotals = new HashMap<>();
+        for (int i = 0; i < salesmanTotals.length; i++) {
+            if (salesmanProcessed[i]) {
+                salesTotals.put(registry.documentNumberAt(firstSalesman + i), salesmanTotals[i]);
+            }
+        }
+        return salesTotals;
+    }
+
+    /**
+     * Construye el mapa de cantidades por producto a partir de los acumuladores. Incluye
+     * también los productos vendidos que no aparecen en el catálogo.
+     *
+     * @return Un HashMap donde la clave es el ID del producto y el valor es la cantidad total vendida.
+     */
+    public HashMap<String, Long> getProductTotals() {
+        HashMap<String, Long> productTotals = new HashMap<>();
+        for (int i = 0; i < productQuantities.length; i++) {
+            if (productSold[i]) {
+                productTotals.put(String.valueOf(catalog.productIdAt(i)), productQuantities[i]);
+            }
+        }
+        if (unknownProductTotals != null) {
+            for (Map.Entry<Long, Long> entry : unknownProductTotals.entrySet()) {
+                productTotals.merge(String.valueOf(entry.getKey()), entry.getValue(), Long::sum);
+            }
+        }
+        return productTotals;
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    public SalesmanRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @param salesmanIndex El índice del vendedor en el registro.
+     * @return El total vendido por ese vendedor.
+     */
+    public long salesmanTotalAt(int salesmanIndex) {
+        return salesmanTotals[salesmanIndex - firstSalesman];
+    }
+
+    /**
+     * @param productIndex El índice del producto en el catálogo.
+     * @return La cantidad total vendida de ese producto.
+     */
+    public long productQuantityAt(int productIndex) {
+        return productQuantities[productIndex];
+    }
+
+    /**
+     * @param productIndex El índice del producto en el catálogo.
+     * @return true si el producto apareció en al menos una fila de ventas.
+     */
+    public boolean isProductSold(int productIndex) {
+        return productSold[productIndex];
+    }
+
+    /**
+     * @return Cantidad de IDs de producto vendidos que no están en el catálogo.
+     */
+    public int getUnknownProductCount() {
+        return unknownProductTotals == null ? 0 : unknownProductTotals.size();
+    }
+
+    /**
+     * @return Cantidad de archivos de ventas leídos completos.
+     */
+    public long getFilesRead() {
+        return filesRead;
+    }
+
+    /**
+     * @return Cantidad de filas de ventas válidas procesadas.
+     */
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    /**
+     * @return Cantidad de filas con formato inválido que se omitieron.
+     */
+    public long getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * @return Bytes de archivos de ventas leídos.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return Los archivos de ventas que más tardaron en leerse.
+     */
+    public RunMetrics.SlowestFiles getSlowestFiles() {
+        return slowestFiles;
+    }
+}
@@ -0,0 +1,613 @@
+package com.poli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Estado persistido entre corridas para el modo incremental. Por cada archivo de ventas
+ * guarda su tamaño, fecha de modificación, hasta qué byte se leyó y lo que aportó a los
+ * totales; con eso una nueva corrida solo lee los archivos nuevos o el final agregado a
+ * los existentes, y relee completo un archivo solo si fue truncado o reescrito.
+ *
+ * <p>Un archivo cuyo tamaño no cambió pero sí su fecha de modificación se relee completo:
+ * pudo editarse en el medio. Solo se da por leído hasta el último salto de línea; si la
+ * última línea todavía no lo tiene (se está escribiendo), cuenta en los totales pero se
+ * vuelve a leer cuando el archivo crezca.</p>
+ *
+ * <p>El checkpoint depende de los precios: si "Product.csv" cambia se descarta y se
+ * recalcula todo.</p>
+ */
+public class SalesCheckpoint {
+
+    /** Nombre por defecto del archivo de checkpoint, junto a los datos. */
+    public static final String DEFAULT_FILE = "Reporte_Ventas.checkpoint";
+
+    private static final int MAGIC = 0x50434B32; // "PCK2"
+    /** Cantidad de bytes, justo antes de la posición leída, que se usan para detectar reescrituras. */
+    private static final int TAIL_LENGTH = 4096;
+
+    /**
+     * Lo que se sabe de un archivo de ventas desde la última corrida.
+     */
+    static class FileState {
+        String documentType;
+        long size;
+        long modifiedMillis;
+        /** Hasta dónde se dio por leído: justo después del último salto de línea. */
+        long offset;
+        long lines;
+        long tailCrc;
+        long rows;
+        long malformedRows;
+        long salesTotal;
+        long[] productIds = new long[0];
+        long[] quantities = new long[0];
+        /** Lo que aporta la última línea sin salto de línea (después de {@link #offset}), si la hay. */
+        long pendingRows;
+        long pendingMalformedRows;
+        long pendingSalesTotal;
+        long[] pendingProductIds = new long[0];
+        long[] pendingQuantities = new long[0];
+    }
+
+    private final long catalogFingerprint;
+    private final HashMap<Long, FileState> files = new HashMap<>();
+    /** Por ID de producto: {cantidad total, cantidad de archivos donde aparece}. */
+    private final HashMap<Long, long[]> productTotals = new HashMap<>();
+
+    private final SalesFileParser parser = new SalesFileParser();
+    private final FileRowCollector collector = new FileRowCollector();
+
+    private int unchangedFiles;
+    private int appendedFiles;
+    private int rereadFiles;
+    private int newFiles;
+    private int removedFiles;
+
+    private SalesCheckpoint(long catalogFingerprint) {
+        this.catalogFingerprint = catalogFingerprint;
+    }
+
+    /**
+     * Crea un checkpoint vacío, sin leer ni escribir ningún archivo de checkpoint (por
+     * ejemplo, para llevar el estado solo en memoria).
+     *
+     * @param productFile La ruta de "Product.csv" con el que se calculan los totales.
+     * @return El checkpoint vacío.
+     * @throws IOException Si "Product.csv" no se puede leer.
+     */
+    public static SalesCheckpoint create(Path productFile) throws IOException {
+        return new SalesCheckpoint(crcOf(productFile));
+    }
+
+    /**
+     * Carga el checkpoint guardado. Si no existe, está dañado o fue creado con otro
+     * catálogo de productos, se devuelve un checkpoint vacío (lo que equivale a recalcular todo).
+     *
+     * @param checkpointFile La ruta del checkpoint.
+     * @param productFile La ruta de "Product.csv", cuyo contenido debe coincidir con el del checkpoint.
+     * @return El checkpoint.
+     * @throws IOException Si "Product.csv" no se puede leer.
+     */
+    public static SalesCheckpoint load(Path checkpointFile, Path productFile) throws IOException {
+        long fingerprint = crcOf(productFile);
+        SalesCheckpoint checkpoint = new SalesCheckpoint(fingerprint);
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(checkpointFile), 1 << 16), crc))) {
+            // Ningún conteo puede pasar de lo que cabe en el archivo; así un conteo dañado
+            // se detecta antes de reservar memoria, y no recién al comparar el CRC del final
+            long maxEntries = Files.size(checkpointFile) / (2 * Long.BYTES);
+            if (in.readInt() != MAGIC) {
+                System.err.println("El checkpoint " + checkpointFile + " no tiene un formato válido; se recalcula todo.");
+                return checkpoint;
+            }
+            if (in.readLong() != fingerprint) {
+                System.out.println("Product.csv cambió desde la última corrida; se recalcula todo.");
+                return checkpoint;
+            }
+            int fileCount = readCount(in, maxEntries);
+            for (int i = 0; i < fileCount; i++) {
+                long documentNumber = in.readLong();
+                FileState state = new FileState();
+                state.documentType = in.readUTF();
+                state.size = in.readLong();
+                state.modifiedMillis = in.readLong();
+                state.offset = in.readLong();
+                state.lines = in.readLong();
+                state.tailCrc = in.readLong();
+                state.rows = in.readLong();
+                state.malformedRows = in.readLong();
+                state.salesTotal = in.readLong();
+                int products = readCount(in, maxEntries);
+                state.productIds = new long[products];
+                state.quantities = new long[products];
+                for (int p = 0; p < products; p++) {
+                    state.productIds[p] = in.readLong();
+                    state.quantities[p] = in.readLong();
+                }
+                state.pendingRows = in.readLong();
+                state.pendingMalformedRows = in.readLong();
+                state.pendingSalesTotal = in.readLong();
+                int pendingProducts = readCount(in, maxEntries);
+                state.pendingProductIds = new long[pendingProducts];
+                state.pendingQuantities = new long[pendingProducts];
+                for (int p = 0; p < pendingProducts; p++) {
+                    state.pendingProductIds[p] = in.readLong();
+                    state.pendingQuantities[p] = in.readLong();
+                }
+                checkpoint.files.put(documentNumber, state);
+            }
+            int productCount = readCount(in, maxEntries);
+            for (int i = 0; i < productCount; i++) {
+                long productId = in.readLong();
+                checkpoint.productTotals.put(productId, new long[]{in.readLong(), in.readLong()});
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) {
+                System.err.println("El checkpoint " + checkpointFile + " está dañado; se recalcula todo.");
+                return new SalesCheckpoint(fingerprint);
+            }
+        } catch (NoSuchFileException e) {
+            System.out.println("No hay checkpoint previo; se procesan todos los archivos.");
+        } catch (EOFException e) {
+            System.err.println("El checkpoint " + checkpointFile + " está incompleto; se recalcula todo.");
+            return new SalesCheckpoint(fingerprint);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("El checkpoint " + checkpointFile + " no se pudo leer (" + e.getMessage() + "); se recalcula todo.");
+            return new SalesCheckpoint(fingerprint);
+        }
+        return checkpoint;
+    }
+
+    private static int readCount(DataInputStream in, long maxEntries) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > maxEntries) {
+            throw new IOException("conteo inválido: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Guarda el checkpoint. Se escribe primero a un archivo temporal y luego se renombra,
+     * para que una corrida interrumpida nunca deje un checkpoint a medias.
+     *
+     * @param checkpointFile La ruta del checkpoint.
+     * @throws IOException Si no se puede escribir.
+     */
+    public void save(Path checkpointFile) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeLong(catalogFingerprint);
+            out.writeInt(files.size());
+            for (Map.Entry<Long, FileState> entry : files.entrySet()) {
+                FileState state = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeUTF(state.documentType);
+                out.writeLong(state.size);
+                out.writeLong(state.modifiedMillis);
+                out.writeLong(state.offset);
+                out.writeLong(state.lines);
+                out.writeLong(state.tailCrc);
+                out.writeLong(state.rows);
+                out.writeLong(state.malformedRows);
+                out.writeLong(state.salesTotal);
+                out.writeInt(state.productIds.length);
+                for (int p = 0; p < state.productIds.length; p++) {
+                    out.writeLong(state.productIds[p]);
+                    out.writeLong(state.quantities[p]);
+                }
+                out.writeLong(state.pendingRows);
+                out.writeLong(state.pendingMalformedRows);
+                out.writeLong(state.pendingSalesTotal);
+                out.writeInt(state.pendingProductIds.length);
+                for (int p = 0; p < state.pendingProductIds.length; p++) {
+                    out.writeLong(state.pendingProductIds[p]);
+                    out.writeLong(state.pendingQuantities[p]);
+                }
+            }
+            out.writeInt(productTotals.size());
+            for (Map.Entry<Long, long[]> entry : productTotals.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+            out.flush();
+            // El CRC cubre todo lo anterior; se escribe fuera del flujo verificado
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Pone al día el estado con los archivos de ventas actuales de todos los vendedores
+     * del registro, leyendo solo lo que cambió desde la última corrida.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     */
+    public void refresh(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory) {
+        resetRefreshCounters();
+        for (int i = 0; i < registry.size(); i++) {
+            refreshSalesman(catalog, registry, dataDirectory, i);
+        }
+        // Vendedores que ya no están en Salesman.csv: se retira lo que aportaban
+        Iterator<Map.Entry<Long, FileState>> iterator = files.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, FileState> entry = iterator.next();
+            if (registry.indexOf(entry.getKey()) < 0) {
+                apply(entry.getValue(), -1);
+                iterator.remove();
+                removedFiles++;
+            }
+        }
+    }
+
+    /**
+     * Pone en cero los contadores de {@link #describeLastRefresh()}, para cuando se
+     * actualizan vendedores sueltos con {@link #refreshSalesman}.
+     */
+    public void resetRefreshCounters() {
+        unchangedFiles = appendedFiles = rereadFiles = newFiles = removedFiles = 0;
+    }
+
+    /**
+     * Pone al día el estado de un solo vendedor.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param salesmanIndex El índice del vendedor en el registro.
+     */
+    public void refreshSalesman(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, int salesmanIndex) {
+        long documentNumber = registry.documentNumberAt(salesmanIndex);
+        String documentType = registry.documentTypeAt(salesmanIndex);
+        Path file = registry.salesFile(dataDirectory, salesmanIndex);
+        FileState previous = files.get(documentNumber);
+        if (previous != null && !previous.documentType.equals(documentType)) {
+            // Cambió el tipo de documento, luego también el nombre del archivo
+            apply(previous, -1);
+            files.remove(documentNumber);
+            previous = null;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attributes.size();
+            long modifiedMillis = attributes.lastModifiedTime().toMillis();
+            FileState state;
+            if (previous == null) {
+                state = readFrom(catalog, file, documentType, null, attributes);
+                newFiles++;
+            } else if (previous.size == size && previous.modifiedMillis == modifiedMillis) {
+                unchangedFiles++;
+                return;
+            } else if (size > previous.size && previous.tailCrc == tailCrc(file, previous.offset)) {
+                // Solo creció: se sigue desde el último salto de línea, incluida una línea que había quedado a medias
+                state = readFrom(catalog, file, documentType, previous, attributes);
+                appendedFiles++;
+            } else {
+                // Se acortó, o cambió sin crecer (editado en el lugar): se relee completo
+                state = readFrom(catalog, file, documentType, null, attributes);
+                rereadFiles++;
+            }
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(state, 1);
+            files.put(documentNumber, state);
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de ventas " + file + ": " + e.getMessage());
+            if (previous != null) {
+                apply(previous, -1);
+                files.remove(documentNumber);
+            }
+        }
+    }
+
+    /**
+     * Lee un archivo desde donde quedó {@code previous} (o completo si es null) hasta el
+     * tamaño de {@code attributes}, aunque siga creciendo mientras se lee, y devuelve el
+     * nuevo estado. No toca los totales por producto: eso lo hace {@link #apply}.
+     */
+    private FileState readFrom(ProductCatalog catalog, Path file, String documentType, FileState previous,
+                               BasicFileAttributes attributes) throws IOException {
+        long startOffset = previous != null ? previous.offset : 0L;
+        long linesBefore = previous != null ? previous.lines : 0L;
+        long size = attributes.size();
+        long lineEnd = afterLastNewline(file, startOffset, size);
+
+        FileState state = new FileState();
+        state.documentType = documentType;
+        state.size = size;
+        state.modifiedMillis = attributes.lastModifiedTime().toMillis();
+        state.offset = lineEnd;
+        state.lines = linesBefore;
+        state.rows = previous != null ? previous.rows : 0L;
+        state.malformedRows = previous != null ? previous.malformedRows : 0L;
+        state.salesTotal = previous != null ? previous.salesTotal : 0L;
+        HashMap<Long, Long> contribution = new HashMap<>();
+        if (previous != null) {
+            for (int p = 0; p < previous.productIds.length; p++) {
+                contribution.put(previous.productIds[p], previous.quantities[p]);
+            }
+        }
+        if (lineEnd > startOffset) {
+            collector.reset(catalog);
+            state.rows += parser.parse(file, startOffset, lineEnd, linesBefore, collector);
+            state.malformedRows += parser.getMalformedRows();
+            state.lines = parser.getLineCount();
+            state.salesTotal += collector.salesTotal;
+            collector.addTo(contribution);
+        }
+        state.productIds = idsOf(contribution);
+        state.quantities = quantitiesOf(contribution, state.productIds);
+        state.tailCrc = tailCrc(file, state.offset);
+
+        if (size > lineEnd) {
+            collector.reset(catalog);
+            state.pendingRows = parser.parse(file, lineEnd, size, state.lines, collector);
+            state.pendingMalformedRows = parser.getMalformedRows();
+            state.pendingSalesTotal = collector.salesTotal;
+            HashMap<Long, Long> pending = new HashMap<>();
+            collector.addTo(pending);
+            state.pendingProductIds = idsOf(pending);
+            state.pendingQuantities = quantitiesOf(pending, state.pendingProductIds);
+        }
+        return state;
+    }
+
+    /**
+     * @return La posición justo después del último salto de línea entre {@code from} y
+     *         {@code size}, o {@code from} si no hay ninguno.
+     */
+    private static long afterLastNewline(Path file, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAIL_LENGTH);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = size;
+            while (end > from) {
+                long start = Math.max(from, end - TAIL_LENGTH);
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        return from; // El archivo se acortó mientras se leía: se relee en la próxima pasada
+                    }
+                }
+                for (int i = (int) (end - start) - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+        }
+        return from;
+    }
+
+    private static long[] idsOf(HashMap<Long, Long> contribution) {
+        long[] ids = new long[contribution.size()];
+        int p = 0;
+        for (long productId : contribution.keySet()) {
+            ids[p++] = productId;
+        }
+        return ids;
+    }
+
+    private static long[] quantitiesOf(HashMap<Long, Long> contribution, long[] ids) {
+        long[] quantities = new long[ids.length];
+        for (int p = 0; p < ids.length; p++) {
+            quantities[p] = contribution.get(ids[p]);
+        }
+        return quantities;
+    }
+
+    /**
+     * Suma ({@code sign} 1) o resta ({@code sign} -1) a los totales por producto lo que aporta
+     * un archivo, incluida su línea pendiente; cada producto cuenta una vez por archivo.
+     */
+    private void apply(FileState state, int sign) {
+        HashMap<Long, Long> contribution = new HashMap<>();
+        for (int p = 0; p < state.productIds.length; p++) {
+            contribution.put(state.productIds[p], state.quantities[p]);
+        }
+        for (int p = 0; p < state.pendingProductIds.length; p++) {
+            contribution.merge(state.pendingProductIds[p], state.pendingQuantities[p], Long::sum);
+        }
+        for (Map.Entry<Long, Long> entry : contribution.entrySet()) {
+            addToProduct(entry.getKey(), sign * entry.getValue(), sign);
+        }
+    }
+
+    private void addToProduct(long productId, long quantity, int fileDelta) {
+        long[] total = productTotals.computeIfAbsent(productId, id -> new long[2]);
+        total[0] += quantity;
+        total[1] += fileDelta;
+        if (total[1] <= 0) {
+            productTotals.remove(productId);
+        }
+    }
+
+    /**
+     * Construye la agregación que usan los reportes a partir del estado guardado.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @return La agregación equivalente a una corrida completa.
+     */
+    public SalesAggregation toAggregation(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory) {
+        return toAggregation(catalog, registry, dataDirectory, false);
+    }
+
+    /**
+     * Igual que {@link #toAggregation(ProductCatalog, SalesmanRegistry, Path)}; con
+     * {@code buildCube} arma además el cubo vendedor × producto con las cantidades por
+     * producto que se guardan de cada archivo, sin leer ningún archivo de ventas.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param buildCube true para armar también el cubo (ver {@link SalesAggregation#getCube()}).
+     * @return La agregación equivalente a una corrida completa.
+     */
+    public SalesAggregation toAggregation(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, boolean buildCube) {
+        SalesAggregation aggregation = new SalesAggregation(catalog, registry, dataDirectory);
+        if (buildCube) {
+            long cells = 0L;
+            for (FileState state : files.values()) {
+                cells += state.productIds.length + state.pendingProductIds.length;
+            }
+            aggregation.enableCube(cells);
+        }
+        SalesCube.Builder cubeBuilder = aggregation.getCubeBuilder();
+        for (int i = 0; i < registry.size(); i++) {
+            FileState state = files.get(registry.documentNumberAt(i));
+            if (state != null) {
+                aggregation.putSalesmanTotal(i, state.salesTotal + state.pendingSalesTotal);
+                aggregation.addCounters(1, state.rows + state.pendingRows, state.malformedRows + state.pendingMalformedRows);
+                if (cubeBuilder != null) {
+                    cubeBuilder.beginSalesman(i);
+                    addToCube(cubeBuilder, catalog, state.productIds, state.quantities);
+                    addToCube(cubeBuilder, catalog, state.pendingProductIds, state.pendingQuantities);
+                    cubeBuilder.endSalesman();
+                }
+            } else {
+                aggregation.putSalesmanTotal(i, 0L);
+            }
+        }
+        for (Map.Entry<Long, long[]> entry : productTotals.entrySet()) {
+            aggregation.addProductQuantity(entry.getKey(), entry.getValue()[0]);
+        }
+        return aggregation;
+    }
+
+    private static void addToCube(SalesCube.Builder cubeBuilder, ProductCatalog catalog, long[] productIds, long[] quantities) {
+        for (int p = 0; p < productIds.length; p++) {
+            int productIndex = catalog.indexOf(productIds[p]);
+            if (productIndex >= 0) {
+                cubeBuilder.add(productIndex, quantities[p]);
+            }
+        }
+    }
+
+    /**
+     * @return Un resumen de cuántos archivos se reutilizaron, leyeron parcialmente o releyeron.
+     */
+    public String describeLastRefresh() {
+        return "Archivos sin cambios: " + unchangedFiles
+                + ", con datos agregados: " + appendedFiles
+                + ", releídos completos: " + rereadFiles
+                + ", nuevos: " + newFiles
+                + ", retirados: " + removedFiles;
+    }
+
+    private static long tailCrc(Path file, long offset) throws IOException {
+        int length = (int) Math.min(TAIL_LENGTH, offset);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = offset - length;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    return -1L; // El archivo es más corto que la posición guardada
+                }
+            }
+        }
+        CRC32 crc = new CRC32();
+        buffer.flip();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    static long crcOf(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Acumula las filas de un solo archivo por índice de producto, recordando qué productos
+     * aparecieron para no recorrer el catálogo completo en cada archivo.
+     */
+    private static class FileRowCollector implements SalesFileParser.RowHandler {
+        private ProductCatalog catalog;
+        private long[] quantities = new long[0];
+        private boolean[] seen = new boolean[0];
+        private int[] touched = new int[0];
+        private int touchedCount;
+        private long salesTotal;
+        private final HashMap<Long, Long> unknownProducts = new HashMap<>();
+
+        void reset(ProductCatalog catalog) {
+            if (this.catalog != catalog || quantities.length != catalog.size()) {
+                this.catalog = catalog;
+                quantities = new long[catalog.size()];
+                seen = new boolean[catalog.size()];
+                touched = new int[catalog.size()];
+            } else {
+                for (int t = 0; t < touchedCount; t++) {
+                    quantities[touched[t]] = 0L;
+                    seen[touched[t]] = false;
+                }
+            }
+            touchedCount = 0;
+            salesTotal = 0L;
+            unknownProducts.clear();
+        }
+
+        @Override
+        public void onRow(long productId, int quantity) {
+            int index = catalog.indexOf(productId);
+            if (index >= 0) {
+                salesTotal += (long) quantity * catalog.priceAt(index);
+                quantities[index] += quantity;
+                if (!seen[index]) {
+                    seen[index] = true;
+                    touched[touchedCount++] = index;
+                }
+            } else {
+                unknownProducts.merge(productId, (long) quantity, Long::sum);
+            }
+        }
+
+        /** Suma a {@code contribution} las cantidades por producto de la última lectura. */
+        void addTo(HashMap<Long, Long> contribution) {
+            for (int t = 0; t < touchedCount; t++) {
+                contribution.merge(catalog.productIdAt(touched[t]), quantities[touched[t]], Long::sum);
+            }
+            for (Map.Entry<Long, Long> entry : unknownProducts.entrySet()) {
+                contribution.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+    }
+}
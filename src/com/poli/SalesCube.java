@@ -0,0 +1,561 @@
+package com.poli;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Cubo vendedor × producto en memoria: la cantidad que cada vendedor vendió de cada
+ * producto, para responder consultas como "qué vendedores venden más Taladro" o "los
+ * productos más vendidos por un vendedor" sin volver a leer los archivos de ventas.
+ *
+ * <p>Una matriz densa no cabe (1.000.000 de vendedores × 10.000 productos serían 80 GB de
+ * {@code long}), y casi todas sus celdas serían cero: cada vendedor vende unos pocos
+ * productos. Por eso solo se guardan las celdas no vacías, dos veces, en arreglos
+ * primitivos indexados por los índices densos de {@link SalesmanRegistry} y
+ * {@link ProductCatalog}:</p>
+ * <ul>
+ *   <li>por vendedor: para el vendedor {@code s}, las posiciones
+ *       {@code salesmanStarts[s]..salesmanStarts[s + 1]} de {@code salesmanProducts} y
+ *       {@code salesmanQuantities}, con los productos en orden creciente;</li>
+ *   <li>por producto: lo mismo con {@code productStarts}, {@code productSalesmen} y
+ *       {@code productQuantities}.</li>
+ * </ul>
+ * <p>Así una fila o una columna completa es un tramo contiguo de los arreglos, y una celda
+ * suelta es una búsqueda binaria dentro de su fila. Además se precalculan los totales por
+ * tipo de documento del vendedor (TI, CC, CE...).</p>
+ *
+ * <p>Solo entran los productos del catálogo; las ventas de IDs desconocidos siguen
+ * apareciendo en los totales de {@link SalesAggregation}, pero no en el cubo.</p>
+ *
+ * <p>El cubo se construye durante la agregación con un {@link Builder} (ver
+ * {@link SalesAggregation#getCube()}) y después es inmutable, por lo que se puede
+ * consultar desde varios hilos.</p>
+ */
+public class SalesCube {
+
+    /**
+     * Recibe las celdas de una fila o columna del cubo.
+     */
+    public interface CellConsumer {
+        /**
+         * @param index El índice del producto (al recorrer un vendedor) o del vendedor (al recorrer un producto).
+         * @param quantity La cantidad vendida.
+         */
+        void accept(int index, long quantity);
+    }
+
+    private final ProductCatalog catalog;
+    private final SalesmanRegistry registry;
+
+    private final int[] salesmanStarts;
+    private final int[] salesmanProducts;
+    private final long[] salesmanQuantities;
+
+    private final int[] productStarts;
+    private final int[] productSalesmen;
+    private final long[] productQuantities;
+
+    /** Tipos de documento distintos, en orden alfabético. */
+    private final String[] documentTypes;
+    /** Por tipo de documento, la cantidad vendida de cada producto. */
+    private final long[][] documentTypeQuantities;
+    /** Por tipo de documento, el total vendido en dinero. */
+    private final long[] documentTypeAmounts;
+
+    private SalesCube(ProductCatalog catalog, SalesmanRegistry registry, int[] salesmanStarts, int[] salesmanProducts, long[] salesmanQuantities) {
+        this.catalog = catalog;
+        this.registry = registry;
+        this.salesmanStarts = salesmanStarts;
+        this.salesmanProducts = salesmanProducts;
+        this.salesmanQuantities = salesmanQuantities;
+
+        // Transponer con un conteo por producto: al recorrer los vendedores en orden, cada
+        // columna queda también ordenada por vendedor
+        int cells = salesmanProducts.length;
+        productStarts = new int[catalog.size() + 1];
+        for (int cell = 0; cell < cells; cell++) {
+            productStarts[salesmanProducts[cell] + 1]++;
+        }
+        for (int product = 0; product < catalog.size(); product++) {
+            productStarts[product + 1] += productStarts[product];
+        }
+        productSalesmen = new int[cells];
+        productQuantities = new long[cells];
+
+        HashMap<String, Integer> typeOrdinals = new HashMap<>();
+        for (int salesman = 0; salesman < registry.size(); salesman++) {
+            typeOrdinals.putIfAbsent(registry.documentTypeAt(salesman), 0);
+        }
+        documentTypes = typeOrdinals.keySet().toArray(new String[0]);
+        Arrays.sort(documentTypes);
+        for (int type = 0; type < documentTypes.length; type++) {
+            typeOrdinals.put(documentTypes[type], type);
+        }
+        documentTypeQuantities = new long[documentTypes.length][catalog.size()];
+        documentTypeAmounts = new long[documentTypes.length];
+
+        // La transposición y los totales por tipo de documento salen de la misma pasada por las filas
+        int[] next = Arrays.copyOf(productStarts, catalog.size());
+        String previousType = null;
+        int type = -1;
+        for (int salesman = 0; salesman < registry.size(); salesman++) {
+            String documentType = registry.documentTypeAt(salesman);
+            if (documentType != previousType) {
+                type = typeOrdinals.get(documentType);
+                previousType = documentType;
+            }
+            long[] typeQuantities = documentTypeQuantities[type];
+            long amount = 0L;
+            for (int cell = salesmanStarts[salesman]; cell < salesmanStarts[salesman + 1]; cell++) {
+                int product = salesmanProducts[cell];
+                long quantity = salesmanQuantities[cell];
+                int position = next[product]++;
+                productSalesmen[position] = salesman;
+                productQuantities[position] = quantity;
+                typeQuantities[product] += quantity;
+                amount += quantity * catalog.priceAt(product);
+            }
+            documentTypeAmounts[type] += amount;
+        }
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    public SalesmanRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return Cantidad de celdas no vacías (pares vendedor-producto con ventas).
+     */
+    public int cellCount() {
+        return salesmanProducts.length;
+    }
+
+    /**
+     * @param salesmanIndex El índice del vendedor.
+     * @param productIndex El índice del producto.
+     * @return La cantidad de ese producto que vendió ese vendedor (0 si no vendió).
+     */
+    public long quantity(int salesmanIndex, int productIndex) {
+        int cell = Arrays.binarySearch(salesmanProducts, salesmanStarts[salesmanIndex], salesmanStarts[salesmanIndex + 1], productIndex);
+        return cell >= 0 ? salesmanQuantities[cell] : 0L;
+    }
+
+    /**
+     * @param salesmanIndex El índice del vendedor.
+     * @param productIndex El índice del producto.
+     * @return Lo que ese vendedor vendió de ese producto, en dinero.
+     */
+    public long amount(int salesmanIndex, int productIndex) {
+        return quantity(salesmanIndex, productIndex) * catalog.priceAt(productIndex);
+    }
+
+    /**
+     * @param salesmanIndex El índice del vendedor.
+     * @return Cantidad de productos distintos que vendió.
+     */
+    public int productCountOf(int salesmanIndex) {
+        return salesmanStarts[salesmanIndex + 1] - salesmanStarts[salesmanIndex];
+    }
+
+    /**
+     * @param productIndex El índice del producto.
+     * @return Cantidad de vendedores distintos que lo vendieron.
+     */
+    public int salesmanCountOf(int productIndex) {
+        return productStarts[productIndex + 1] - productStarts[productIndex];
+    }
+
+    /**
+     * Recorre los productos que vendió un vendedor, en orden de índice.
+     *
+     * @param salesmanIndex El índice del vendedor.
+     * @param consumer Recibe el índice de cada producto y su cantidad.
+     */
+    public void forEachProduct(int salesmanIndex, CellConsumer consumer) {
+        for (int cell = salesmanStarts[salesmanIndex]; cell < salesmanStarts[salesmanIndex + 1]; cell++) {
+            consumer.accept(salesmanProducts[cell], salesmanQuantities[cell]);
+        }
+    }
+
+    /**
+     * Recorre los vendedores que vendieron un producto, en orden de índice.
+     *
+     * @param productIndex El índice del producto.
+     * @param consumer Recibe el índice de cada vendedor y su cantidad.
+     */
+    public void forEachSalesman(int productIndex, CellConsumer consumer) {
+        for (int cell = productStarts[productIndex]; cell < productStarts[productIndex + 1]; cell++) {
+            consumer.accept(productSalesmen[cell], productQuantities[cell]);
+        }
+    }
+
+    /**
+     * Los vendedores que más unidades vendieron de un producto. Solo recorre los vendedores
+     * que lo vendieron; los empates se ordenan por número de documento.
+     *
+     * @param productIndex El índice del producto.
+     * @param limit Cuántos vendedores devolver como máximo.
+     * @return Los índices de los vendedores, de mayor a menor cantidad.
+     */
+    public int[] topSalesmen(int productIndex, int limit) {
+        int start = productStarts[productIndex];
+        int[] cells = SalesRanking.select(salesmanCountOf(productIndex), cell -> true,
+                cell -> productQuantities[start + cell],
+                cell -> registry.documentNumberAt(productSalesmen[start + cell]), 1, limit);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = productSalesmen[start + cells[i]];
+        }
+        return cells;
+    }
+
+    /**
+     * Los productos de los que un vendedor vendió más unidades. Los empates se ordenan por
+     * ID de producto.
+     *
+     * @param salesmanIndex El índice del vendedor.
+     * @param limit Cuántos productos devolver como máximo.
+     * @return Los índices de los productos, de mayor a menor cantidad.
+     */
+    public int[] topProducts(int salesmanIndex, int limit) {
+        int start = salesmanStarts[salesmanIndex];
+        int[] cells = SalesRanking.select(productCountOf(salesmanIndex), cell -> true,
+                cell -> salesmanQuantities[start + cell],
+                cell -> catalog.productIdAt(salesmanProducts[start + cell]), 1, limit);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = salesmanProducts[start + cells[i]];
+        }
+        return cells;
+    }
+
+    /**
+     * @return Los tipos de documento de los vendedores, en orden alfabético.
+     */
+    public String[] getDocumentTypes() {
+        return documentTypes.clone();
+    }
+
+    /**
+     * @param documentType Un tipo de documento (por ejemplo, "CC").
+     * @param productIndex El índice del producto.
+     * @return La cantidad de ese producto vendida por los vendedores con ese tipo de documento.
+     */
+    public long quantityByDocumentType(String documentType, int productIndex) {
+        int type = documentTypeOrdinal(documentType);
+        return type >= 0 ? documentTypeQuantities[type][productIndex] : 0L;
+    }
+
+    /**
+     * @param documentType Un tipo de documento.
+     * @return El total en dinero vendido por los vendedores con ese tipo de documento.
+     */
+    public long amountByDocumentType(String documentType) {
+        int type = documentTypeOrdinal(documentType);
+        return type >= 0 ? documentTypeAmounts[type] : 0L;
+    }
+
+    /**
+     * Los productos más vendidos (en unidades) entre los vendedores con un tipo de documento.
+     *
+     * @param documentType Un tipo de documento.
+     * @param limit Cuántos productos devolver como máximo.
+     * @return Los índices de los productos, de mayor a menor cantidad.
+     */
+    public int[] topProductsByDocumentType(String documentType, int limit) {
+        int type = documentTypeOrdinal(documentType);
+        if (type < 0) {
+            return new int[0];
+        }
+        long[] quantities = documentTypeQuantities[type];
+        return SalesRanking.select(quantities.length, product -> quantities[product] > 0,
+                product -> quantities[product], catalog::productIdAt, 1, limit);
+    }
+
+    private int documentTypeOrdinal(String documentType) {
+        int type = Arrays.binarySearch(documentTypes, documentType);
+        return type >= 0 ? type : -1;
+    }
+
+    /**
+     * @return Bytes que ocupan los arreglos del cubo (sin contar el catálogo ni el registro).
+     */
+    public long memoryFootprint() {
+        return estimateFootprint(registry.size(), catalog.size(), cellCount(), documentTypes.length);
+    }
+
+    /**
+     * Estima lo que ocuparía un cubo, para dimensionar la memoria antes de construirlo:
+     * 24 bytes por celda (índice de 4 bytes y cantidad de 8, por vendedor y por producto),
+     * 4 bytes por vendedor y por producto para los inicios de fila y columna, y 8 bytes por
+     * producto y tipo de documento para los totales por tipo.
+     *
+     * @param salesmen Cantidad de vendedores.
+     * @param products Cantidad de productos.
+     * @param cells Cantidad de pares vendedor-producto con ventas.
+     * @param documentTypes Cantidad de tipos de documento.
+     * @return Los bytes estimados.
+     */
+    public static long estimateFootprint(long salesmen, long products, long cells, int documentTypes) {
+        return cells * 2 * (Integer.BYTES + Long.BYTES)
+                + (salesmen + 1 + products + 1) * Integer.BYTES
+                + (long) documentTypes * (products + 1) * Long.BYTES;
+    }
+
+    /**
+     * @return Un resumen del tamaño del cubo, comparado con el de una matriz densa.
+     */
+    public String describe() {
+        long denseBytes = (long) registry.size() * catalog.size() * Long.BYTES;
+        double density = registry.size() == 0 || catalog.size() == 0 ? 0.0 : (double) cellCount() / ((double) registry.size() * catalog.size());
+        return String.format("Cubo vendedor x producto: %d vendedores x %d productos, %d celdas con ventas (%.4f%%), "
+                        + "%.1f MB en memoria (una matriz densa ocuparía %.1f MB)",
+                registry.size(), catalog.size(), cellCount(), density * 100.0,
+                memoryFootprint() / 1048576.0, denseBytes / 1048576.0);
+    }
+
+    /**
+     * Arma el cubo fila por fila. Cada fila se acumula en un arreglo denso del tamaño del
+     * catálogo (más la lista de productos tocados, para no recorrerlo entero) y al cerrarla
+     * se copia, ordenada por producto, al final de dos arreglos que crecen. Las filas pueden
+     * llegar en cualquier orden; {@link #build()} las reordena por vendedor.
+     *
+     * <p>Cada hilo usa su propio constructor; los parciales se combinan con {@link #merge}.
+     * Un constructor parcial puede limitarse a un rango de vendedores, y entonces sus arreglos
+     * por vendedor tienen el tamaño del rango y no el del registro.</p>
+     */
+    public static class Builder {
+        /** Celdas que se reservan de entrada como mucho (unos 48 MB); si hacen falta más, los arreglos crecen. */
+        private static final int MAX_PREALLOCATED_CELLS = 1 << 22;
+
+        private final ProductCatalog catalog;
+        private final SalesmanRegistry registry;
+        /** El primer vendedor del rango; las filas se guardan relativas a él. */
+        private final int firstSalesman;
+        private final int[] rowOffsets;
+        private final int[] rowLengths;
+        private int[] products;
+        private long[] quantities;
+        private int size = 0;
+        private int cells = 0;
+        /** true mientras las filas llegan en orden de vendedor y sin repetirse: build() no tiene que reordenarlas. */
+        private boolean inOrder = true;
+        private int lastSalesman = -1;
+
+        /** La fila en curso, densa; null en un parcial ya compactado, hasta que vuelva a recibir filas. */
+        private long[] rowQuantities;
+        private int[] touched = new int[64];
+        private int touchedCount = 0;
+        private int currentSalesman = -1;
+
+        /**
+         * @param catalog El catálogo de productos de la corrida.
+         * @param registry El registro de vendedores de la corrida.
+         */
+        public Builder(ProductCatalog catalog, SalesmanRegistry registry) {
+            this(catalog, registry, 1024);
+        }
+
+        /**
+         * @param catalog El catálogo de productos de la corrida.
+         * @param registry El registro de vendedores de la corrida.
+         * @param expectedCells Cuántas celdas se esperan, si se sabe (por ejemplo, la
+         *                      cantidad de filas de ventas, que es un máximo); evita hacer
+         *                      crecer los arreglos varias veces con cubos grandes. Se reserva
+         *                      a lo sumo vendedores × productos y
+         *                      {@link #MAX_PREALLOCATED_CELLS} celdas.
+         */
+        public Builder(ProductCatalog catalog, SalesmanRegistry registry, long expectedCells) {
+            this(catalog, registry, 0, registry.size(), expectedCells);
+        }
+
+        /**
+         * Un constructor que solo acepta los vendedores de índice {@code from} a {@code to - 1}.
+         */
+        Builder(ProductCatalog catalog, SalesmanRegistry registry, int from, int to, long expectedCells) {
+            this.catalog = catalog;
+            this.registry = registry;
+            this.firstSalesman = from;
+            this.rowOffsets = new int[to - from];
+            this.rowLengths = new int[to - from];
+            this.rowQuantities = new long[catalog.size()];
+            long possibleCells = (long) (to - from) * catalog.size();
+            int capacity = (int) Math.max(16, Math.min(Math.min(possibleCells, MAX_PREALLOCATED_CELLS), expectedCells));
+            this.products = new int[capacity];
+            this.quantities = new long[capacity];
+        }
+
+        /**
+         * Empieza (o retoma, si ya tenía) la fila de un vendedor.
+         *
+         * @param salesmanIndex El índice del vendedor.
+         */
+        public void beginSalesman(int salesmanIndex) {
+            if (rowQuantities == null) {
+                rowQuantities = new long[catalog.size()];
+            }
+            int row = salesmanIndex - firstSalesman;
+            currentSalesman = row;
+            touchedCount = 0;
+            int offset = rowOffsets[row];
+            for (int cell = offset; cell < offset + rowLengths[row]; cell++) {
+                add(products[cell], quantities[cell]);
+            }
+            if (rowLengths[row] > 0) {
+                cells -= rowLengths[row]; // La fila anterior queda sin uso en los arreglos
+                rowLengths[row] = 0;
+                inOrder = false;
+            }
+        }
+
+        /**
+         * Suma una cantidad a la celda (vendedor actual, producto).
+         *
+         * @param productIndex El índice del producto en el catálogo.
+         * @param quantity La cantidad.
+         */
+        public void add(int productIndex, long quantity) {
+            if (rowQuantities[productIndex] == 0L) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = productIndex;
+            }
+            rowQuantities[productIndex] += quantity;
+        }
+
+        /**
+         * Cierra la fila del vendedor actual.
+         */
+        public void endSalesman() {
+            Arrays.sort(touched, 0, touchedCount);
+            ensureCapacity(size + touchedCount);
+            int offset = size;
+            for (int i = 0; i < touchedCount; i++) {
+                int product = touched[i];
+                // Una celda que volvió a cero (devoluciones) no se guarda
+                if (rowQuantities[product] != 0L) {
+                    products[size] = product;
+                    quantities[size] = rowQuantities[product];
+                    size++;
+                }
+                rowQuantities[product] = 0L;
+            }
+            closeRow(currentSalesman, offset);
+            touchedCount = 0;
+            currentSalesman = -1;
+        }
+
+        /** Registra como fila de {@code row} (relativo al rango) las celdas desde {@code offset} hasta el final. */
+        private void closeRow(int row, int offset) {
+            rowOffsets[row] = offset;
+            rowLengths[row] = size - offset;
+            cells += size - offset;
+            if (row <= lastSalesman) {
+                inOrder = false;
+            }
+            lastSalesman = row;
+        }
+
+        /**
+         * Libera la fila densa (del tamaño del catálogo) y recorta los arreglos de celdas a
+         * lo usado. Para un parcial que ya no recibe filas y solo espera a combinarse: con
+         * muchos bloques, cada uno conserva apenas sus celdas.
+         */
+        void compact() {
+            rowQuantities = null;
+            touched = new int[64];
+            products = trim(products);
+            quantities = trim(quantities);
+        }
+
+        private void ensureCapacity(long capacity) {
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("El cubo no admite más de " + (Integer.MAX_VALUE - 8) + " celdas con ventas.");
+            }
+            if (capacity > products.length) {
+                int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, products.length * 2L));
+                products = Arrays.copyOf(products, newCapacity);
+                quantities = Arrays.copyOf(quantities, newCapacity);
+            }
+        }
+
+        /**
+         * Suma en este constructor las filas de otro construido con el mismo catálogo y
+         * registro. Solo se recorre el rango de vendedores del otro, que debe estar dentro del
+         * de este; las filas que este todavía no tiene se copian tal cual, ya ordenadas.
+         *
+         * @param other El constructor parcial a combinar.
+         */
+        public void merge(Builder other) {
+            int shift = other.firstSalesman - firstSalesman;
+            if (shift < 0 || shift + other.rowLengths.length > rowLengths.length) {
+                throw new IllegalArgumentException("El cubo parcial tiene vendedores fuera del rango de este.");
+            }
+            for (int otherRow = 0; otherRow < other.rowLengths.length; otherRow++) {
+                int length = other.rowLengths[otherRow];
+                if (length == 0) {
+                    continue;
+                }
+                int from = other.rowOffsets[otherRow];
+                int row = shift + otherRow;
+                if (rowLengths[row] == 0) {
+                    ensureCapacity((long) size + length);
+                    System.arraycopy(other.products, from, products, size, length);
+                    System.arraycopy(other.quantities, from, quantities, size, length);
+                    int offset = size;
+                    size += length;
+                    closeRow(row, offset);
+                    continue;
+                }
+                beginSalesman(firstSalesman + row);
+                for (int cell = from; cell < from + length; cell++) {
+                    add(other.products[cell], other.quantities[cell]);
+                }
+                endSalesman();
+            }
+        }
+
+        /**
+         * @return El cubo con las filas acumuladas, ordenadas por vendedor.
+         */
+        public SalesCube build() {
+            // Los vendedores fuera del rango quedan con filas vacías
+            int[] starts = new int[registry.size() + 1];
+            int end = firstSalesman + rowLengths.length;
+            if (inOrder) {
+                // Las filas ya están una tras otra en orden de vendedor: basta con recortar los arreglos
+                for (int salesman = 0; salesman < registry.size(); salesman++) {
+                    int row = salesman - firstSalesman;
+                    starts[salesman + 1] = salesman < firstSalesman || salesman >= end || rowLengths[row] == 0
+                            ? starts[salesman] : rowOffsets[row] + rowLengths[row];
+                }
+                return new SalesCube(catalog, registry, starts, trim(products), trim(quantities));
+            }
+            int[] orderedProducts = new int[cells];
+            long[] orderedQuantities = new long[cells];
+            int position = 0;
+            for (int salesman = 0; salesman < registry.size(); salesman++) {
+                starts[salesman] = position;
+                if (salesman >= firstSalesman && salesman < end) {
+                    int row = salesman - firstSalesman;
+                    System.arraycopy(products, rowOffsets[row], orderedProducts, position, rowLengths[row]);
+                    System.arraycopy(quantities, rowOffsets[row], orderedQuantities, position, rowLengths[row]);
+                    position += rowLengths[row];
+                }
+            }
+            starts[registry.size()] = position;
+            return new SalesCube(catalog, registry, starts, orderedProducts, orderedQuantities);
+        }
+
+        private int[] trim(int[] array) {
+            return array.length == size ? array : Arrays.copyOf(array, size);
+        }
+
+        private long[] trim(long[] array) {
+            return array.length == size ? array : Arrays.copyOf(array, size);
+        }
+    }
+}
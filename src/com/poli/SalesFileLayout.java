@@ -0,0 +1,49 @@
+package com.poli;
+
+import java.nio.file.Path;
+
+/**
+ * Ubicación de los archivos de ventas dentro del directorio de datos. Por defecto todos
+ * están juntos ("Sales_&lt;TipoDoc&gt;_&lt;NumDoc&gt;.csv" al lado de "Salesman.csv"); con
+ * millones de vendedores se pueden repartir en subdirectorios
+ * "ventas/&lt;shard&gt;/", donde el shard es el número de documento módulo la cantidad de shards,
+ * para no tener millones de entradas en un solo directorio.
+ */
+public final class SalesFileLayout {
+
+    /** Subdirectorio donde van los shards. */
+    public static final String SHARDS_DIRECTORY = "ventas";
+
+    private SalesFileLayout() {
+    }
+
+    /**
+     * @param dataDirectory El directorio de datos.
+     * @param documentType El tipo de documento del vendedor.
+     * @param documentNumber El número de documento del vendedor.
+     * @param shards La cantidad de shards, o 0 para la distribución plana.
+     * @return La ruta del archivo de ventas del vendedor.
+     */
+    public static Path salesFile(Path dataDirectory, String documentType, long documentNumber, int shards) {
+        String fileName = "Sales_" + documentType + "_" + documentNumber + ".csv";
+        if (shards <= 0) {
+            return dataDirectory.resolve(fileName);
+        }
+        return shardDirectory(dataDirectory, (int) (documentNumber % shards), shards).resolve(fileName);
+    }
+
+    /**
+     * @param dataDirectory El directorio de datos.
+     * @param shard El número de shard (0 a shards - 1).
+     * @param shards La cantidad de shards.
+     * @return El directorio del shard, con el número rellenado con ceros ("ventas/007").
+     */
+    public static Path shardDirectory(Path dataDirectory, int shard, int shards) {
+        int width = Integer.toString(Math.max(0, shards - 1)).length();
+        StringBuilder name = new StringBuilder(Integer.toString(shard));
+        while (name.length() < width) {
+            name.insert(0, '0');
+        }
+        return dataDirectory.resolve(SHARDS_DIRECTORY).resolve(name.toString());
+    }
+}
@@ -0,0 +1,328 @@
+package com.poli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector de archivos de ventas ("ID_Producto;Cantidad_Producto_vendido") que trabaja
+ * directamente sobre los bytes del archivo. Cada fila se convierte a primitivos
+ * (long para el ID, int para la cantidad) sin crear String ni arreglos intermedios.
+ *
+ * <p>Los archivos pequeños se leen con un único {@code read} sobre un buffer que se
+ * reutiliza entre archivos; los grandes se recorren con {@link MappedByteBuffer} por
+ * ventanas. Una instancia no es segura para varios hilos: cada hilo debe usar la suya.</p>
+ */
+public class SalesFileParser {
+
+    /**
+     * Recibe las filas leídas por el parser.
+     */
+    public interface RowHandler {
+
+        /**
+         * Se llama por cada fila válida del archivo.
+         *
+         * @param productId El ID del producto.
+         * @param quantity La cantidad vendida.
+         */
+        void onRow(long productId, int quantity);
+
+        /**
+         * Se llama por cada fila con formato inválido; la fila se omite y la lectura continúa.
+         *
+         * @param file El archivo que se está leyendo.
+         * @param lineNumber El número de línea (empezando en 1, el encabezado es la línea 1).
+         * @param reason La descripción del problema.
+         */
+        default void onMalformedRow(Path file, long lineNumber, String reason) {
+            System.err.println("Fila inválida en " + file + ", línea " + lineNumber + ": " + reason);
+        }
+    }
+
+    /** Archivos de hasta este tamaño se leen de una vez al buffer reutilizable. */
+    private static final int SMALL_FILE_LIMIT = 64 * 1024;
+    /** Tamaño máximo de cada ventana mapeada en memoria. */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final ByteBuffer smallFileBuffer = ByteBuffer.allocate(SMALL_FILE_LIMIT);
+
+    private Path file;
+    private RowHandler handler;
+    private long lineNumber;
+    private long rows;
+    private long malformedRows;
+    private long endOffset;
+
+    /**
+     * Lee un archivo de ventas completo, omitiendo el encabezado.
+     *
+     * @param file La ruta del archivo.
+     * @param handler Quien recibe las filas.
+     * @return Cantidad de filas válidas leídas.
+     * @throws IOException Si el archivo no se puede abrir o leer.
+     */
+    public long parse(Path file, RowHandler handler) throws IOException {
+        return parse(file, 0L, 0L, handler);
+    }
+
+    /**
+     * Lee un archivo de ventas a partir de una posición en bytes, que debe estar al inicio
+     * de una línea. El encabezado solo se omite cuando se lee desde la posición 0.
+     *
+     * @param file La ruta del archivo.
+     * @param startOffset La posición en bytes desde donde leer.
+     * @param linesBefore Cantidad de líneas que hay antes de {@code startOffset}, para numerar los errores.
+     * @param handler Quien recibe las filas.
+     * @return Cantidad de filas válidas leídas.
+     * @throws IOException Si el archivo no se puede abrir o leer.
+     */
+    public long parse(Path file, long startOffset, long linesBefore, RowHandler handler) throws IOException {
+        return parse(file, startOffset, Long.MAX_VALUE, linesBefore, handler);
+    }
+
+    /**
+     * Igual que {@link #parse(Path, long, long, RowHandler)}, pero sin pasar de
+     * {@code limitOffset} (o del final del archivo, si es antes): los bytes desde ahí se tratan
+     * como si el archivo terminara en ese punto.
+     *
+     * @param file La ruta del archivo.
+     * @param startOffset La posición en bytes desde donde leer.
+     * @param limitOffset La posición en bytes hasta donde leer (exclusiva).
+     * @param linesBefore Cantidad de líneas que hay antes de {@code startOffset}, para numerar los errores.
+     * @param handler Quien recibe las filas.
+     * @return Cantidad de filas válidas leídas.
+     * @throws IOException Si el archivo no se puede abrir o leer.
+     */
+    public long parse(Path file, long startOffset, long limitOffset, long linesBefore, RowHandler handler) throws IOException {
+        this.file = file;
+        this.handler = handler;
+        this.lineNumber = linesBefore;
+        this.rows = 0L;
+        this.malformedRows = 0L;
+        boolean headerPending = startOffset == 0L;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limitOffset);
+            if (size - startOffset <= SMALL_FILE_LIMIT) {
+                smallFileBuffer.clear();
+                smallFileBuffer.limit((int) Math.max(0L, size - startOffset));
+                long position = startOffset;
+                while (smallFileBuffer.hasRemaining()) {
+                    int read = channel.read(smallFileBuffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                }
+                smallFileBuffer.flip();
+                parseBuffer(smallFileBuffer, true, headerPending);
+            } else {
+                long position = startOffset;
+                while (position < size) {
+                    long length = Math.min(MAP_WINDOW, size - position);
+                    boolean lastWindow = position + length == size;
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int consumed = parseBuffer(window, lastWindow, headerPending);
+                    if (consumed == 0) {
+                        throw new IOException("Línea demasiado larga en " + file + " cerca de la línea " + (lineNumber + 1));
+                    }
+                    headerPending = false;
+                    position += consumed;
+                }
+            }
+            endOffset = Math.max(size, startOffset);
+        } finally {
+            this.file = null;
+            this.handler = null;
+        }
+        return rows;
+    }
+
+    /**
+     * Interpreta un archivo de ventas completo que ya está en memoria (por ejemplo, leído
+     * por adelantado por {@link SalesFilePipeline}), entre {@code position} y {@code limit}
+     * de {@code content}. No modifica la posición ni el límite del buffer.
+     *
+     * @param file La ruta del archivo, para los mensajes de error.
+     * @param content El contenido del archivo, con el encabezado.
+     * @param handler Quien recibe las filas.
+     * @return Cantidad de filas válidas leídas.
+     */
+    public long parse(Path file, ByteBuffer content, RowHandler handler) {
+        this.file = file;
+        this.handler = handler;
+        this.lineNumber = 0L;
+        this.rows = 0L;
+        this.malformedRows = 0L;
+        try {
+            parseBuffer(content, true, true);
+            endOffset = content.remaining();
+        } finally {
+            this.file = null;
+            this.handler = null;
+        }
+        return rows;
+    }
+
+    /**
+     * @return Cantidad de filas inválidas encontradas en el último archivo leído.
+     */
+    public long getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * @return Número de líneas recorridas hasta el final del último archivo leído, incluido el encabezado.
+     */
+    public long getLineCount() {
+        return lineNumber;
+    }
+
+    /**
+     * @return Posición en bytes hasta donde se leyó el último archivo (su tamaño al abrirlo).
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Recorre las líneas completas del buffer. Si no es el último tramo del archivo, la
+     * línea final incompleta se deja para la siguiente ventana.
+     *
+     * @return Cantidad de bytes consumidos.
+     */
+    private int parseBuffer(ByteBuffer buffer, boolean lastChunk, boolean headerPending) {
+        int limit = buffer.limit();
+        int end = limit;
+        if (!lastChunk) {
+            end = lastNewline(buffer, limit);
+            if (end < 0) {
+                return 0;
+            }
+            end++;
+        }
+        int position = buffer.position();
+        if (headerPending && position < end) {
+            position = skipLine(buffer, position, end);
+            lineNumber++;
+        }
+        while (position < end) {
+            position = parseLine(buffer, position, end);
+        }
+        return end;
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= buffer.position(); i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLine(ByteBuffer buffer, int position, int end) {
+        while (position < end && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    /**
+     * Interpreta una línea "ID;Cantidad" que empieza en {@code position}.
+     *
+     * @return La posición donde empieza la siguiente línea.
+     */
+    private int parseLine(ByteBuffer buffer, int position, int end) {
+        lineNumber++;
+        int start = position;
+
+        // Como Long.parseLong, se acepta un '+' al principio
+        if (position < end && buffer.get(position) == '+') {
+            position++;
+        }
+        long productId = 0L;
+        int idDigits = 0;
+        byte b = 0;
+        while (position < end && (b = buffer.get(position)) >= '0' && b <= '9') {
+            if (idDigits == 18) {
+                return malformed(buffer, position, end, "ID de producto demasiado largo");
+            }
+            productId = productId * 10 + (b - '0');
+            idDigits++;
+            position++;
+        }
+        if (position >= end || b == '\n' || b == '\r') {
+            if (position == start && isLineEnd(buffer, position, end)) {
+                return skipLine(buffer, position, end); // Línea vacía
+            }
+            return malformed(buffer, position, end, "se esperaban 2 columnas");
+        }
+        if (b != ';' || idDigits == 0) {
+            return malformed(buffer, position, end, "ID de producto no numérico");
+        }
+        position++;
+
+        boolean negative = false;
+        if (position < end) {
+            b = buffer.get(position);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                position++;
+            }
+        }
+        long quantity = 0L;
+        int quantityDigits = 0;
+        while (position < end && (b = buffer.get(position)) >= '0' && b <= '9') {
+            quantity = quantity * 10 + (b - '0');
+            if (quantity > (long) Integer.MAX_VALUE + 1) {
+                return malformed(buffer, position, end, "cantidad fuera de rango");
+            }
+            quantityDigits++;
+            position++;
+        }
+        if (quantityDigits == 0) {
+            if (position < end && buffer.get(position) == ';') {
+                return malformed(buffer, position, end, "se esperaban 2 columnas");
+            }
+            return malformed(buffer, position, end, "cantidad no numérica");
+        }
+        // Como con split(";"), los separadores sobrantes al final de la fila ("123;5;") se ignoran
+        int afterQuantity = position;
+        while (position < end && buffer.get(position) == ';') {
+            position++;
+        }
+        if (!isLineEnd(buffer, position, end)) {
+            if (position > afterQuantity) {
+                return malformed(buffer, position, end, "se esperaban 2 columnas");
+            }
+            return malformed(buffer, position, end, "cantidad no numérica");
+        }
+        if (negative) {
+            quantity = -quantity;
+        }
+        if (quantity > Integer.MAX_VALUE) {
+            return malformed(buffer, position, end, "cantidad fuera de rango");
+        }
+        handler.onRow(productId, (int) quantity);
+        rows++;
+        return skipLine(buffer, position, end);
+    }
+
+    private static boolean isLineEnd(ByteBuffer buffer, int position, int end) {
+        if (position >= end) {
+            return true;
+        }
+        byte b = buffer.get(position);
+        return b == '\n' || (b == '\r' && (position + 1 >= end || buffer.get(position + 1) == '\n'));
+    }
+
+    private int malformed(ByteBuffer buffer, int position, int end, String reason) {
+        malformedRows++;
+        handler.onMalformedRow(file, lineNumber, reason);
+        return skipLine(buffer, position, end);
+    }
+}
@@ -0,0 +1,288 @@
+package com.poli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agregación en dos etapas que se solapan: hilos lectores que abren y leen por adelantado
+ * los archivos de ventas, e hilos que los interpretan y acumulan. Mientras un archivo se
+ * interpreta, los siguientes ya se están leyendo, de modo que ni el disco ni la CPU quedan
+ * esperando al otro; sirve sobre todo con muchos archivos pequeños en almacenamiento lento
+ * o de red, donde abrir cada archivo cuesta más que interpretarlo.
+ *
+ * <p>Los lectores copian varios archivos completos, uno tras otro, en un mismo lote: un
+ * buffer directo de tamaño fijo tomado de un conjunto que se reutiliza. Los lotes llenos
+ * pasan por una cola acotada a los hilos de cálculo, que los devuelven al conjunto al
+ * terminar. Si todos los buffers están en uso, los lectores esperan (contrapresión): la
+ * memoria de lectura nunca supera el presupuesto, sin importar el tamaño de los datos.
+ * Los archivos más grandes que un buffer no se copian; los lee con
+ * {@link java.nio.MappedByteBuffer} el hilo que los interpreta, como en la lectura normal.</p>
+ *
+ * <p>Cada hilo de cálculo acumula los productos en su propia {@link SalesAggregation}
+ * parcial y escribe los totales por vendedor directamente en los del resultado (cada
+ * vendedor lo procesa un solo hilo); al final los parciales se combinan con
+ * {@link SalesAggregation#merge}, así que el resultado es el mismo que el de
+ * {@link SalesAggregation#aggregate}.</p>
+ */
+public class SalesFilePipeline {
+
+    /** Presupuesto de memoria de lectura por defecto. */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    /** Cantidad de hilos lectores por defecto. */
+    public static final int DEFAULT_READERS = 2;
+
+    private static final int MIN_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    /** Lote que se envía a los hilos de cálculo cuando ya no quedan archivos por leer. */
+    private static final Batch END = new Batch(null);
+
+    private final int readers;
+    private final int workers;
+    private final int bufferSize;
+    private final int bufferCount;
+
+    private final AtomicLong batchesRead = new AtomicLong();
+    private final AtomicLong largeFiles = new AtomicLong();
+    private final AtomicLong readerWaits = new AtomicLong();
+    private final AtomicLong workerWaits = new AtomicLong();
+
+    /**
+     * @param readers Cantidad de hilos lectores.
+     * @param workers Cantidad de hilos que interpretan y acumulan.
+     * @param memoryBudget Bytes para los buffers de lectura. Se usan al menos dos buffers
+     *                     por hilo, de modo que con presupuestos muy pequeños se puede usar
+     *                     algo más.
+     */
+    public SalesFilePipeline(int readers, int workers, long memoryBudget) {
+        this.readers = readers;
+        this.workers = workers;
+        int minBuffers = 2 * (readers + workers);
+        this.bufferSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, memoryBudget / minBuffers));
+        this.bufferCount = (int) Math.max(minBuffers, memoryBudget / bufferSize);
+    }
+
+    /**
+     * Archivos leídos por adelantado, uno tras otro en el mismo buffer. Para cada archivo se
+     * guarda el vendedor, dónde empieza y termina en el buffer y cuánto tardó en leerse.
+     * Un tramo con inicio -1 es un archivo grande que no se copió; con inicio -2, uno que no
+     * se pudo leer.
+     */
+    private static class Batch {
+        private static final int LARGE = -1;
+        private static final int UNREAD = -2;
+
+        final ByteBuffer buffer;
+        int count;
+        int[] salesmen = new int[64];
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        long[] readNanos = new long[64];
+
+        Batch(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void add(int salesman, int start, int end, long nanos) {
+            if (count == salesmen.length) {
+                int capacity = count * 2;
+                salesmen = Arrays.copyOf(salesmen, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                readNanos = Arrays.copyOf(readNanos, capacity);
+            }
+            salesmen[count] = salesman;
+            starts[count] = start;
+            ends[count] = end;
+            readNanos[count] = nanos;
+            count++;
+        }
+
+        void clear() {
+            count = 0;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Lee y acumula todos los archivos de ventas.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param buildCube true para armar también el cubo vendedor × producto.
+     * @return La agregación con los totales por vendedor y por producto.
+     */
+    public SalesAggregation aggregate(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, boolean buildCube) {
+        BlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBatches.add(new Batch(ByteBuffer.allocateDirect(bufferSize)));
+        }
+        // Cabe cada lote más una marca de fin por hilo de cálculo, para que nunca bloquee al cerrar
+        BlockingQueue<Batch> fullBatches = new ArrayBlockingQueue<>(bufferCount + workers);
+        AtomicInteger nextSalesman = new AtomicInteger();
+
+        SalesAggregation result = new SalesAggregation(catalog, registry, dataDirectory);
+        if (buildCube) {
+            result.enableCube();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(readers + workers);
+        try {
+            CompletionService<SalesAggregation> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < readers; i++) {
+                completion.submit(() -> {
+                    read(registry, dataDirectory, nextSalesman, freeBatches, fullBatches);
+                    return null;
+                });
+            }
+            for (int i = 0; i < workers; i++) {
+                completion.submit(() -> accumulate(result, buildCube, freeBatches, fullBatches));
+            }
+            // Se recogen las tareas a medida que terminan: si una falla, se cancelan las
+            // demás en vez de dejar a los lectores esperando buffers que nadie devolverá
+            int readersLeft = readers;
+            for (int pending = readers + workers; pending > 0; pending--) {
+                Future<SalesAggregation> done = completion.take();
+                SalesAggregation partial = done.get();
+                if (partial != null) {
+                    result.merge(partial);
+                } else if (--readersLeft == 0) {
+                    for (int i = 0; i < workers; i++) {
+                        fullBatches.put(END);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la lectura de los archivos de ventas.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error en la lectura de los archivos de ventas.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Etapa de lectura: toma vendedores en orden y copia sus archivos al lote actual; cuando
+     * el siguiente archivo ya no cabe, publica el lote y toma otro buffer libre.
+     */
+    private void read(SalesmanRegistry registry, Path dataDirectory, AtomicInteger nextSalesman,
+                      BlockingQueue<Batch> freeBatches, BlockingQueue<Batch> fullBatches) throws InterruptedException {
+        Batch batch = takeFree(freeBatches);
+        int salesman;
+        while ((salesman = nextSalesman.getAndIncrement()) < registry.size()) {
+            Path file = registry.salesFile(dataDirectory, salesman);
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > bufferSize) {
+                    batch.add(salesman, Batch.LARGE, Batch.LARGE, 0L);
+                    largeFiles.incrementAndGet();
+                    continue;
+                }
+                if (size > batch.buffer.remaining()) {
+                    publish(batch, fullBatches);
+                    batch = takeFree(freeBatches);
+                    start = System.nanoTime(); // La espera por un buffer no es tiempo de lectura
+                }
+                ByteBuffer buffer = batch.buffer;
+                int from = buffer.position();
+                buffer.limit(from + (int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position() - from) < 0) {
+                        break; // El archivo se acortó mientras se leía
+                    }
+                }
+                int to = buffer.position();
+                buffer.limit(buffer.capacity());
+                batch.add(salesman, from, to, System.nanoTime() - start);
+            } catch (IOException e) {
+                System.err.println("Error al leer el archivo de ventas " + file + ": " + e.getMessage());
+                batch.add(salesman, Batch.UNREAD, Batch.UNREAD, 0L);
+            }
+        }
+        if (batch.count > 0) {
+            publish(batch, fullBatches);
+        } else {
+            freeBatches.put(batch);
+        }
+    }
+
+    private Batch takeFree(BlockingQueue<Batch> freeBatches) throws InterruptedException {
+        Batch batch = freeBatches.poll();
+        if (batch == null) {
+            readerWaits.incrementAndGet();
+            batch = freeBatches.take();
+        }
+        batch.clear();
+        return batch;
+    }
+
+    private void publish(Batch batch, BlockingQueue<Batch> fullBatches) throws InterruptedException {
+        batchesRead.incrementAndGet();
+        fullBatches.put(batch);
+    }
+
+    /**
+     * Etapa de cálculo: interpreta los archivos de cada lote, devuelve el buffer al conjunto
+     * libre y sigue con el próximo lote hasta recibir la marca de fin.
+     */
+    private SalesAggregation accumulate(SalesAggregation result, boolean buildCube,
+                                        BlockingQueue<Batch> freeBatches, BlockingQueue<Batch> fullBatches) throws InterruptedException {
+        SalesAggregation partial = result.newSharedPartial();
+        if (buildCube) {
+            partial.enableCube();
+        }
+        while (true) {
+            Batch batch = fullBatches.poll();
+            if (batch == null) {
+                workerWaits.incrementAndGet();
+                batch = fullBatches.take();
+            }
+            if (batch == END) {
+                return partial;
+            }
+            ByteBuffer buffer = batch.buffer;
+            for (int i = 0; i < batch.count; i++) {
+                if (batch.starts[i] == Batch.LARGE) {
+                    partial.addSalesFile(batch.salesmen[i]);
+                } else if (batch.starts[i] == Batch.UNREAD) {
+                    partial.addUnreadSalesFile(batch.salesmen[i]);
+                } else {
+                    buffer.limit(batch.ends[i]).position(batch.starts[i]);
+                    partial.addSalesFile(batch.salesmen[i], buffer, batch.readNanos[i]);
+                }
+            }
+            freeBatches.put(batch);
+        }
+    }
+
+    /**
+     * @return Un resumen de la configuración y de cuánto esperó cada etapa a la otra.
+     */
+    public String describe() {
+        return "Lectura anticipada: " + readers + " lectores, " + workers + " hilos de cálculo, "
+                + bufferCount + " buffers de " + (bufferSize / 1024) + " KB (" + String.format("%.1f", (double) bufferCount * bufferSize / (1024 * 1024)) + " MB); "
+                + batchesRead.get() + " lotes, " + largeFiles.get() + " archivos grandes leídos aparte, "
+                + "esperas de los lectores por memoria: " + readerWaits.get()
+                + ", esperas del cálculo por datos: " + workerWaits.get();
+    }
+}
@@ -0,0 +1,146 @@
+package com.poli;
+
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Selecciona un rango de posiciones (por ejemplo, del 1 al 100, o del 10.001 al 20.000)
+ * de un ranking ordenado de mayor a menor, sin ordenar el conjunto completo. Trabaja con
+ * índices densos y valores primitivos: mantiene un montículo acotado con los mejores
+ * {@code hasta} elementos, de modo que el costo es O(n log k) en tiempo y O(k) en memoria.
+ *
+ * <p>Los empates se resuelven por la clave (número de documento o ID de producto) de
+ * menor a mayor, igual que el orden completo de los reportes.</p>
+ */
+public class SalesRanking {
+
+    private final int capacity;
+    private final int[] heapIndexes;
+    private final long[] heapValues;
+    private final long[] heapKeys;
+    private int size = 0;
+
+    private SalesRanking(int capacity) {
+        this.capacity = capacity;
+        this.heapIndexes = new int[capacity];
+        this.heapValues = new long[capacity];
+        this.heapKeys = new long[capacity];
+    }
+
+    /**
+     * Devuelve los índices que ocupan las posiciones {@code fromRank..toRank} (desde 1,
+     * ambas incluidas) del ranking, ya ordenados.
+     *
+     * @param count Cantidad de índices candidatos (0 a count - 1).
+     * @param included Indica qué índices participan en el ranking.
+     * @param values El valor por el que se ordena, de mayor a menor.
+     * @param keys La clave que desempata, de menor a mayor.
+     * @param fromRank La primera posición pedida (1 es el mayor).
+     * @param toRank La última posición pedida.
+     * @return Los índices en orden de ranking; puede tener menos elementos si no hay suficientes.
+     */
+    public static int[] select(int count, IntPredicate included, IntToLongFunction values, IntToLongFunction keys, int fromRank, int toRank) {
+        if (fromRank < 1 || toRank < fromRank) {
+            throw new IllegalArgumentException("Rango de posiciones inválido: " + fromRank + "-" + toRank);
+        }
+        SalesRanking ranking = new SalesRanking(Math.max(0, Math.min(toRank, count)));
+        if (ranking.capacity > 0) {
+            for (int i = 0; i < count; i++) {
+                if (included.test(i)) {
+                    ranking.offer(i, values.applyAsLong(i), keys.applyAsLong(i));
+                }
+            }
+        }
+        int[] ordered = ranking.drainInRankOrder();
+        int skip = Math.min(fromRank - 1, ordered.length);
+        int[] page = new int[ordered.length - skip];
+        System.arraycopy(ordered, skip, page, 0, page.length);
+        return page;
+    }
+
+    private void offer(int index, long value, long key) {
+        if (size < capacity) {
+            heapIndexes[size] = index;
+            heapValues[size] = value;
+            heapKeys[size] = key;
+            siftUp(size++);
+        } else if (ranksBefore(value, key, heapValues[0], heapKeys[0])) {
+            // La raíz es el peor de los que se conservan; se reemplaza por el nuevo
+            heapIndexes[0] = index;
+            heapValues[0] = value;
+            heapKeys[0] = key;
+            siftDown(0);
+        }
+    }
+
+    private int[] drainInRankOrder() {
+        int[] ordered = new int[size];
+        for (int position = size - 1; position >= 0; position--) {
+            ordered[position] = heapIndexes[0];
+            size--;
+            if (size > 0) {
+                move(size, 0);
+                siftDown(0);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return true si el elemento (value, key) va antes en el ranking que (otherValue, otherKey).
+     */
+    private static boolean ranksBefore(long value, long key, long otherValue, long otherKey) {
+        return value > otherValue || (value == otherValue && key < otherKey);
+    }
+
+    /** El montículo deja en la raíz el elemento que va de último en el ranking. */
+    private boolean worse(int a, int b) {
+        return ranksBefore(heapValues[b], heapKeys[b], heapValues[a], heapKeys[a]);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!worse(position, parent)) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(right, left)) {
+                worst = right;
+            }
+            if (!worse(worst, position)) {
+                return;
+            }
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private void move(int from, int to) {
+        heapIndexes[to] = heapIndexes[from];
+        heapValues[to] = heapValues[from];
+        heapKeys[to] = heapKeys[from];
+    }
+
+    private void swap(int a, int b) {
+        int index = heapIndexes[a];
+        long value = heapValues[a];
+        long key = heapKeys[a];
+        move(b, a);
+        heapIndexes[b] = index;
+        heapValues[b] = value;
+        heapKeys[b] = key;
+    }
+}
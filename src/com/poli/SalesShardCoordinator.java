@@ -0,0 +1,309 @@
+package com.poli;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Agregación repartida en varios procesos ({@code --procesos=N}). El coordinador divide los
+ * vendedores de "Salesman.csv" en particiones contiguas (por índice del registro) y mantiene
+ * hasta N procesos trabajadores en marcha, cada uno una JVM aparte con {@link Main} y
+ * {@code --trabajador=P/S}. Cada trabajador carga el catálogo y el registro, lee solo los
+ * archivos de ventas de su partición y escribe un archivo parcial compacto; el coordinador
+ * suma los parciales en una sola {@link SalesAggregation} y genera los reportes como en una
+ * corrida normal, así que el resultado es idéntico al de un solo proceso.
+ *
+ * <p>El archivo parcial tiene el formato de {@link SalesAggregation#writePartial}, precedido
+ * por la huella (CRC) de "Product.csv" y "Salesman.csv" y seguido de un CRC del contenido.
+ * Si un trabajador termina con error, o su parcial falta, está dañado o fue calculado con
+ * otros datos, la partición se vuelve a lanzar hasta {@code --reintentos} veces. Lo mismo
+ * si un intento tarda más de {@code --limite-trabajador} segundos: se mata el proceso (un
+ * trabajador colgado no debe trabar la corrida entera).</p>
+ *
+ * <p>Los trabajadores son procesos locales, pero solo comparten con el coordinador el
+ * directorio de datos y el de los parciales.</p>
+ */
+public class SalesShardCoordinator {
+
+    /** Cantidad de reintentos por defecto de una partición fallida. */
+    public static final int DEFAULT_RETRIES = 2;
+
+    private static final int MAGIC = 0x50504131; // "PPA1"
+
+    private final RunOptions options;
+    private final Path dataDirectory;
+
+    private int partitions;
+    private int launched = 0;
+    private int retried = 0;
+    private int timedOut = 0;
+    private long partialBytes = 0L;
+
+    /** Una partición en curso: su proceso, a qué intento corresponde y hasta cuándo puede tardar. */
+    private static class Attempt {
+        final int partition;
+        final int number;
+        final Path partialFile;
+        final Process process;
+        final CompletableFuture<Process> exit;
+        final long deadlineNanos;
+
+        Attempt(int partition, int number, Path partialFile, Process process, long deadlineNanos) {
+            this.partition = partition;
+            this.number = number;
+            this.partialFile = partialFile;
+            this.process = process;
+            this.exit = process.onExit();
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * @param options Las opciones de la corrida; se usan el directorio de datos, los shards
+     *                de ventas, los hilos de {@code --paralelo} (para cada trabajador), la
+     *                cantidad de procesos, de particiones y de reintentos.
+     */
+    public SalesShardCoordinator(RunOptions options) {
+        this.options = options;
+        this.dataDirectory = options.getDataDirectory();
+    }
+
+    /**
+     * Lanza los trabajadores, espera sus parciales y los combina.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @return La agregación con los totales por vendedor y por producto.
+     * @throws IOException Si una partición falla más veces que los reintentos permitidos.
+     */
+    public SalesAggregation aggregate(ProductCatalog catalog, SalesmanRegistry registry) throws IOException {
+        partitions = Math.max(1, Math.min(options.getPartitions(), registry.size()));
+        long productCrc = SalesCheckpoint.crcOf(dataDirectory.resolve(Main.PRODUCT_FILE));
+        long salesmanCrc = SalesCheckpoint.crcOf(dataDirectory.resolve(Main.SALESMAN_FILE));
+        SalesAggregation result = new SalesAggregation(catalog, registry, dataDirectory);
+
+        Path partialDirectory = Files.createTempDirectory(dataDirectory.toAbsolutePath(), "parciales-");
+        Deque<int[]> pending = new ArrayDeque<>(); // {partición, intento}
+        for (int partition = 1; partition <= partitions; partition++) {
+            pending.add(new int[]{partition, 1});
+        }
+        List<Attempt> running = new ArrayList<>();
+        try {
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                while (running.size() < options.getProcesses() && !pending.isEmpty()) {
+                    int[] next = pending.poll();
+                    running.add(launch(next[0], next[1], partialDirectory));
+                }
+                awaitAnyExit(running);
+                for (Attempt attempt : new ArrayList<>(running)) {
+                    String failure;
+                    if (attempt.exit.isDone()) {
+                        int from = partitionStart(registry.size(), attempt.partition - 1, partitions);
+                        int to = partitionStart(registry.size(), attempt.partition, partitions);
+                        failure = attempt.process.exitValue() != 0
+                                ? "el proceso terminó con código " + attempt.process.exitValue()
+                                : mergePartial(result, attempt.partialFile, productCrc, salesmanCrc, from, to);
+                    } else if (options.getWorkerTimeoutSeconds() > 0 && System.nanoTime() - attempt.deadlineNanos >= 0) {
+                        attempt.process.destroyForcibly();
+                        attempt.exit.join();
+                        timedOut++;
+                        failure = "no terminó en " + options.getWorkerTimeoutSeconds() + " s";
+                    } else {
+                        continue;
+                    }
+                    running.remove(attempt);
+                    if (failure == null) {
+                        continue;
+                    }
+                    if (attempt.number > options.getRetries()) {
+                        throw new IOException("La partición " + attempt.partition + "/" + partitions + " falló en el intento "
+                                + attempt.number + " de " + (options.getRetries() + 1) + ": " + failure);
+                    }
+                    System.err.println("La partición " + attempt.partition + "/" + partitions + " falló (" + failure + "); se reintenta.");
+                    retried++;
+                    pending.add(new int[]{attempt.partition, attempt.number + 1});
+                }
+            }
+        } finally {
+            for (Attempt attempt : running) {
+                attempt.process.destroyForcibly();
+            }
+            // Se espera a que terminen para que ninguno siga escribiendo en el directorio que se borra
+            for (Attempt attempt : running) {
+                attempt.exit.join();
+            }
+            FileTrees.deleteRecursively(partialDirectory);
+        }
+        return result;
+    }
+
+    /**
+     * Espera a que termine alguno de los trabajadores en marcha o, si hay límite de tiempo,
+     * a que se venza el primer plazo.
+     */
+    private void awaitAnyExit(List<Attempt> running) {
+        CompletableFuture<Object> anyExit = CompletableFuture.anyOf(running.stream().map(attempt -> attempt.exit).toArray(CompletableFuture[]::new));
+        if (options.getWorkerTimeoutSeconds() > 0) {
+            long untilNearestDeadline = running.stream().mapToLong(attempt -> attempt.deadlineNanos - System.nanoTime()).min().orElse(0L);
+            anyExit.completeOnTimeout(null, Math.max(0L, untilNearestDeadline), TimeUnit.NANOSECONDS);
+        }
+        anyExit.join();
+    }
+
+    private Attempt launch(int partition, int number, Path partialDirectory) throws IOException {
+        Path partialFile = partialDirectory.resolve("parcial-" + partition + "-" + number + ".bin");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        // Los trabajadores usan los mismos límites de memoria que el coordinador
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-Xmx") || argument.startsWith("-Xms") || argument.startsWith("-Xss")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("--datos=" + dataDirectory.toAbsolutePath());
+        if (options.getSalesShards() > 0) {
+            command.add("--shards=" + options.getSalesShards());
+        }
+        if (options.isParallel()) {
+            command.add("--paralelo=" + options.getParallelism());
+        }
+        command.add("--trabajador=" + partition + "/" + partitions);
+        command.add("--parcial=" + partialFile);
+        // Los avisos de los archivos de ventas llegan por la salida de errores, como en un solo proceso
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        launched++;
+        return new Attempt(partition, number, partialFile, process,
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getWorkerTimeoutSeconds()));
+    }
+
+    /**
+     * Verifica un parcial completo antes de sumarlo, para que uno dañado no deje la
+     * agregación a medias.
+     *
+     * @return null si se combinó, o la descripción del problema.
+     */
+    String mergePartial(SalesAggregation result, Path partialFile, long productCrc, long salesmanCrc, int from, int to) throws IOException {
+        if (!Files.exists(partialFile)) {
+            return "no se escribió el parcial";
+        }
+        byte[] content = Files.readAllBytes(partialFile);
+        if (content.length < 36) {
+            return "el parcial está incompleto";
+        }
+        ByteBuffer header = ByteBuffer.wrap(content);
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - 8);
+        if (header.getLong(content.length - 8) != crc.getValue()) {
+            return "el parcial está dañado (CRC inválido)";
+        }
+        if (header.getInt(0) != MAGIC) {
+            return "el parcial no tiene un formato válido";
+        }
+        if (header.getLong(4) != productCrc || header.getLong(12) != salesmanCrc) {
+            return "Product.csv o Salesman.csv cambiaron durante la corrida";
+        }
+        if (header.getInt(20) != from || header.getInt(24) != to) {
+            return "el parcial no corresponde a los vendedores " + from + "-" + to;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content, 20, content.length - 28));
+        result.mergePartial(in);
+        partialBytes += content.length;
+        Files.delete(partialFile);
+        return null;
+    }
+
+    /**
+     * Punto de entrada de un proceso trabajador ({@code --trabajador=P/S --parcial=RUTA}):
+     * agrega la partición P de S y escribe su parcial.
+     *
+     * @param options Las opciones recibidas del coordinador.
+     * @return true si el parcial quedó escrito; si no, el proceso debe terminar con error.
+     */
+    static boolean runWorker(RunOptions options) {
+        Path dataDirectory = options.getDataDirectory();
+        int partition = options.getWorkerPartition();
+        int partitionCount = options.getWorkerPartitions();
+        try {
+            ProductCatalog catalog = Main.loadProductCatalog(dataDirectory);
+            SalesmanRegistry registry = Main.loadSalesmanRegistry(dataDirectory);
+            registry.setSalesShards(options.getSalesShards());
+            if (catalog.size() == 0 || registry.size() == 0) {
+                throw new IOException("No se pudieron cargar Product.csv y Salesman.csv.");
+            }
+            int from = partitionStart(registry.size(), partition - 1, partitionCount);
+            int to = partitionStart(registry.size(), partition, partitionCount);
+            SalesAggregation aggregation = SalesAggregation.aggregateRange(catalog, registry, dataDirectory,
+                    from, to, options.isParallel() ? options.getParallelism() : 1);
+            writePartial(aggregation, from, to, options.getPartialFile(),
+                    SalesCheckpoint.crcOf(dataDirectory.resolve(Main.PRODUCT_FILE)),
+                    SalesCheckpoint.crcOf(dataDirectory.resolve(Main.SALESMAN_FILE)));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error en el proceso trabajador " + partition + "/" + partitionCount + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Escribe el parcial a un archivo temporal y lo renombra al terminar, para que el
+     * coordinador nunca lea uno a medio escribir.
+     */
+    static void writePartial(SalesAggregation aggregation, int from, int to, Path partialFile,
+                                     long productCrc, long salesmanCrc) throws IOException {
+        Path temporary = partialFile.resolveSibling(partialFile.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeLong(productCrc);
+            out.writeLong(salesmanCrc);
+            aggregation.writePartial(out, from, to);
+            out.flush();
+            // El CRC cubre todo lo anterior; se escribe fuera del flujo verificado
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+        Files.move(temporary, partialFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return El primer índice de vendedor de la partición {@code partition} (desde 0) de
+     *         {@code partitionCount}; con {@code partition == partitionCount}, el total.
+     */
+    static int partitionStart(int salesmen, int partition, int partitionCount) {
+        return (int) ((long) salesmen * partition / partitionCount);
+    }
+
+    /**
+     * @return Un resumen de los procesos lanzados y los reintentos.
+     */
+    public String describe() {
+        return "Procesos: " + options.getProcesses() + " trabajadores, " + partitions + " particiones, "
+                + launched + " procesos lanzados (" + retried + " reintentos, " + timedOut + " por tiempo), "
+                + partialBytes + " bytes de parciales";
+    }
+
+}
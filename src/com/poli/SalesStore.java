@@ -0,0 +1,623 @@
+package com.poli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Almacén binario por columnas con todas las ventas, para no volver a interpretar los CSV
+ * en cada corrida. Se construye una vez con {@link #ingest} a partir de "Product.csv",
+ * "Salesman.csv" y los archivos de ventas, y después los reportes se calculan leyéndolo
+ * con {@link MappedByteBuffer}.
+ *
+ * <p>Formato del archivo (enteros en big-endian):</p>
+ * <pre>
+ *   encabezado   MAGIC, versión, cantidades, anchos de columna, posición de cada sección y
+ *                huellas (tamaño y fecha) de los CSV de los que salió
+ *   diccionario  por producto: ID, precio y nombre; primero los del catálogo y luego los
+ *                IDs vendidos que no están en el catálogo (sin precio ni nombre)
+ *   vendedores   por vendedor: número y tipo de documento, nombre y apellido
+ *   inicios      por vendedor, la posición de su primera fila (más una posición final)
+ *   códigos      por fila, el índice del producto en el diccionario (1, 2 o 4 bytes)
+ *   cantidades   por fila, la cantidad vendida (1, 2 o 4 bytes, con signo)
+ *   CRC32        del encabezado, el diccionario, los vendedores y los inicios
+ *   CRC32        de las dos columnas de filas
+ * </pre>
+ *
+ * <p>Al abrir se verifica siempre el primer CRC, que cubre lo que de todos modos se lee
+ * entero; el de las columnas, que son casi todo el archivo, solo si se pide (ver
+ * {@link #open(Path, boolean)}).</p>
+ *
+ * <p>Una fila ocupa entre 2 y 8 bytes en lugar de los 14 o más de su línea de texto. Las
+ * filas inválidas se descartan al ingerir. Si cambian los CSV hay que volver a ingerir:
+ * {@link #changedSources} compara las huellas guardadas con los archivos actuales.</p>
+ */
+public class SalesStore {
+
+    /** Nombre por defecto del almacén, junto a los datos. */
+    public static final String DEFAULT_FILE = "Ventas.columnar";
+
+    private static final int MAGIC = 0x50435331; // "PCS1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES + 12 * Long.BYTES;
+    private static final int TRAILER_SIZE = 2 * Long.BYTES;
+    /** Tamaño máximo de cada ventana mapeada en memoria. */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final Path storeFile;
+    private final ProductCatalog catalog;
+    private final SalesmanRegistry registry;
+    private final long[] unknownProductIds;
+    private final long[] rowStarts;
+    private final long rowCount;
+    private final long filesRead;
+    private final long malformedRows;
+    private final int codeWidth;
+    private final int quantityWidth;
+    private final long codesOffset;
+    private final long quantitiesOffset;
+    private final long fileSize;
+    private final long productFingerprint;
+    private final long salesmanFingerprint;
+    private final long salesFingerprint;
+
+    private SalesStore(Path storeFile, ProductCatalog catalog, SalesmanRegistry registry, long[] unknownProductIds,
+            long[] rowStarts, long filesRead, long malformedRows, int codeWidth, int quantityWidth,
+            long codesOffset, long quantitiesOffset, long fileSize, long[] fingerprints) {
+        this.storeFile = storeFile;
+        this.catalog = catalog;
+        this.registry = registry;
+        this.unknownProductIds = unknownProductIds;
+        this.rowStarts = rowStarts;
+        this.rowCount = rowStarts[rowStarts.length - 1];
+        this.filesRead = filesRead;
+        this.malformedRows = malformedRows;
+        this.codeWidth = codeWidth;
+        this.quantityWidth = quantityWidth;
+        this.codesOffset = codesOffset;
+        this.quantitiesOffset = quantitiesOffset;
+        this.fileSize = fileSize;
+        this.productFingerprint = fingerprints[0];
+        this.salesmanFingerprint = fingerprints[1];
+        this.salesFingerprint = fingerprints[2];
+    }
+
+    //---------------------------------------------------------------------------------
+    //  INGESTA: CSV -> ALMACÉN
+    //---------------------------------------------------------------------------------
+
+    /**
+     * Lee una vez los archivos de ventas de todos los vendedores y escribe el almacén.
+     * Las filas se vuelcan primero a dos archivos temporales (códigos y cantidades), porque
+     * el ancho de cada columna solo se conoce al final; luego se copian empaquetadas. El
+     * almacén se escribe a un archivo temporal y se renombra al terminar.
+     *
+     * @param catalog El catálogo de productos.
+     * @param registry El registro de vendedores.
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param storeFile La ruta del almacén a crear.
+     * @return El almacén recién creado, listo para leer.
+     * @throws IOException Si no se pueden escribir los archivos.
+     */
+    public static SalesStore ingest(ProductCatalog catalog, SalesmanRegistry registry, Path dataDirectory, Path storeFile) throws IOException {
+        Path codesSpill = codeSpillOf(storeFile);
+        Path quantitiesSpill = quantitySpillOf(storeFile);
+        try {
+            RowSpiller spiller = new RowSpiller(catalog, codesSpill, quantitiesSpill);
+            long[] rowStarts = new long[registry.size() + 1];
+            long filesRead = 0L;
+            long malformedRows = 0L;
+            long salesFingerprint = 0L;
+            SalesFileParser parser = new SalesFileParser();
+            try {
+                for (int i = 0; i < registry.size(); i++) {
+                    rowStarts[i] = spiller.rows;
+                    Path file = registry.salesFile(dataDirectory, i);
+                    salesFingerprint = fingerprint(salesFingerprint, file);
+                    try {
+                        parser.parse(file, spiller);
+                        filesRead++;
+                    } catch (IOException e) {
+                        System.err.println("Error al leer el archivo de ventas " + file + ": " + e.getMessage());
+                    }
+                    malformedRows += parser.getMalformedRows();
+                }
+                rowStarts[registry.size()] = spiller.rows;
+            } finally {
+                spiller.close();
+            }
+            long[] fingerprints = {
+                    fingerprint(0L, dataDirectory.resolve(Main.PRODUCT_FILE)),
+                    fingerprint(0L, dataDirectory.resolve(Main.SALESMAN_FILE)),
+                    salesFingerprint};
+            write(catalog, registry, spiller, rowStarts, filesRead, malformedRows, fingerprints, storeFile);
+        } finally {
+            Files.deleteIfExists(codesSpill);
+            Files.deleteIfExists(quantitiesSpill);
+        }
+        return open(storeFile);
+    }
+
+    /**
+     * Combina {@code fingerprint} con el tamaño y la fecha de modificación de un archivo (-1
+     * si no existe). Es barato, no lee el contenido: sirve para avisar que un CSV cambió
+     * después de ingerir, no para detectar cualquier cambio.
+     */
+    private static long fingerprint(long fingerprint, Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return (fingerprint * 31 + attributes.size()) * 31 + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return fingerprint * 31 - 1;
+        }
+    }
+
+    /**
+     * Convierte cada fila en (código de producto, cantidad) y la escribe a los temporales,
+     * llevando el rango de valores para elegir después el ancho de cada columna.
+     */
+    private static class RowSpiller implements SalesFileParser.RowHandler {
+        private final ProductCatalog catalog;
+        private final LongIndexMap unknownProducts = new LongIndexMap();
+        private final DataOutputStream codes;
+        private final DataOutputStream quantities;
+        private long rows;
+        private int minQuantity;
+        private int maxQuantity;
+        private IOException failure;
+
+        RowSpiller(ProductCatalog catalog, Path codesSpill, Path quantitiesSpill) throws IOException {
+            this.catalog = catalog;
+            this.codes = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(codesSpill), 1 << 16));
+            this.quantities = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(quantitiesSpill), 1 << 16));
+        }
+
+        @Override
+        public void onRow(long productId, int quantity) {
+            if (failure != null) {
+                return;
+            }
+            int code = catalog.indexOf(productId);
+            if (code < 0) {
+                code = catalog.size() + unknownProducts.add(productId);
+            }
+            try {
+                codes.writeInt(code);
+                quantities.writeInt(quantity);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            minQuantity = Math.min(minQuantity, quantity);
+            maxQuantity = Math.max(maxQuantity, quantity);
+            rows++;
+        }
+
+        int dictionarySize() {
+            return catalog.size() + unknownProducts.size();
+        }
+
+        void close() throws IOException {
+            codes.close();
+            quantities.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static void write(ProductCatalog catalog, SalesmanRegistry registry, RowSpiller spiller, long[] rowStarts,
+            long filesRead, long malformedRows, long[] fingerprints, Path storeFile) throws IOException {
+        int codeWidth = spiller.dictionarySize() <= 1 << 8 ? 1 : spiller.dictionarySize() <= 1 << 16 ? 2 : 4;
+        int quantityWidth = spiller.minQuantity >= Byte.MIN_VALUE && spiller.maxQuantity <= Byte.MAX_VALUE ? 1
+                : spiller.minQuantity >= Short.MIN_VALUE && spiller.maxQuantity <= Short.MAX_VALUE ? 2 : 4;
+
+        // Se calculan antes las posiciones de cada sección para escribir el archivo de corrido
+        long dictionaryOffset = HEADER_SIZE;
+        long dictionaryLength = 0L;
+        for (int i = 0; i < catalog.size(); i++) {
+            dictionaryLength += 2 * Long.BYTES + textLength(catalog.nameAt(i));
+        }
+        dictionaryLength += (long) spiller.unknownProducts.size() * (2 * Long.BYTES + Integer.BYTES);
+        long salesmenOffset = dictionaryOffset + dictionaryLength;
+        long salesmenLength = 0L;
+        for (int i = 0; i < registry.size(); i++) {
+            salesmenLength += Long.BYTES + textLength(registry.documentTypeAt(i))
+                    + textLength(registry.firstNameAt(i)) + textLength(registry.lastNameAt(i));
+        }
+        long rowStartsOffset = salesmenOffset + salesmenLength;
+        long codesOffset = rowStartsOffset + (long) rowStarts.length * Long.BYTES;
+        long quantitiesOffset = codesOffset + spiller.rows * codeWidth;
+        long checksumOffset = quantitiesOffset + spiller.rows * quantityWidth;
+
+        Path temporary = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(catalog.size());
+            out.writeInt(spiller.unknownProducts.size());
+            out.writeInt(registry.size());
+            out.writeInt(codeWidth);
+            out.writeInt(quantityWidth);
+            out.writeLong(filesRead);
+            out.writeLong(malformedRows);
+            out.writeLong(dictionaryOffset);
+            out.writeLong(salesmenOffset);
+            out.writeLong(rowStartsOffset);
+            out.writeLong(codesOffset);
+            out.writeLong(quantitiesOffset);
+            out.writeLong(checksumOffset);
+            out.writeLong(spiller.rows);
+            for (long fingerprint : fingerprints) {
+                out.writeLong(fingerprint);
+            }
+
+            for (int i = 0; i < catalog.size(); i++) {
+                out.writeLong(catalog.productIdAt(i));
+                out.writeLong(catalog.priceAt(i));
+                writeText(out, catalog.nameAt(i));
+            }
+            for (int i = 0; i < spiller.unknownProducts.size(); i++) {
+                out.writeLong(spiller.unknownProducts.keyAt(i));
+                out.writeLong(0L);
+                writeText(out, null);
+            }
+            for (int i = 0; i < registry.size(); i++) {
+                out.writeLong(registry.documentNumberAt(i));
+                writeText(out, registry.documentTypeAt(i));
+                writeText(out, registry.firstNameAt(i));
+                writeText(out, registry.lastNameAt(i));
+            }
+            for (long rowStart : rowStarts) {
+                out.writeLong(rowStart);
+            }
+            long metadataCrc = crc.getValue();
+            crc.reset();
+            copyPacked(codeSpillOf(storeFile), spiller.rows, codeWidth, out);
+            copyPacked(quantitySpillOf(storeFile), spiller.rows, quantityWidth, out);
+            out.flush();
+            // Los CRC se escriben fuera del flujo verificado
+            DataOutputStream trailer = new DataOutputStream(raw);
+            trailer.writeLong(metadataCrc);
+            trailer.writeLong(crc.getValue());
+        }
+        Files.move(temporary, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path codeSpillOf(Path storeFile) {
+        return storeFile.resolveSibling(storeFile.getFileName() + ".codigos.tmp");
+    }
+
+    private static Path quantitySpillOf(Path storeFile) {
+        return storeFile.resolveSibling(storeFile.getFileName() + ".cantidades.tmp");
+    }
+
+    private static void copyPacked(Path spill, long rows, int width, DataOutputStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill), 1 << 16))) {
+            for (long r = 0; r < rows; r++) {
+                int value = in.readInt();
+                if (width == 1) {
+                    out.writeByte(value);
+                } else if (width == 2) {
+                    out.writeShort(value);
+                } else {
+                    out.writeInt(value);
+                }
+            }
+        }
+    }
+
+    private static int textLength(String text) {
+        return Integer.BYTES + (text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /** Escribe un texto como largo en bytes + UTF-8; -1 indica null. */
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    //---------------------------------------------------------------------------------
+    //  LECTURA DEL ALMACÉN
+    //---------------------------------------------------------------------------------
+
+    /**
+     * Abre un almacén sin verificar el CRC de las columnas de filas.
+     *
+     * @param storeFile La ruta del almacén.
+     * @return El almacén.
+     * @throws IOException Si no se puede leer o si está dañado o incompleto.
+     * @see #open(Path, boolean)
+     */
+    public static SalesStore open(Path storeFile) throws IOException {
+        return open(storeFile, false);
+    }
+
+    /**
+     * Abre un almacén: verifica el CRC del encabezado, el diccionario, los vendedores y los
+     * inicios de fila, y los carga. Las columnas de filas no se cargan; se leen mapeadas en
+     * {@link #aggregate()}.
+     *
+     * @param storeFile La ruta del almacén.
+     * @param verifyColumns true para verificar también el CRC de las columnas, lo que obliga a
+     *                      leer el archivo entero.
+     * @return El almacén.
+     * @throws IOException Si no se puede leer o si está dañado o incompleto.
+     */
+    public static SalesStore open(Path storeFile, boolean verifyColumns) throws IOException {
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("El almacén " + storeFile + " está incompleto.");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("El archivo " + storeFile + " no es un almacén de ventas válido.");
+            }
+            if (header.getInt() != VERSION) {
+                throw new IOException("El almacén " + storeFile + " es de otra versión; hay que volver a ingerir con --ingestar.");
+            }
+            int productCount = header.getInt();
+            int unknownCount = header.getInt();
+            int salesmanCount = header.getInt();
+            int codeWidth = header.getInt();
+            int quantityWidth = header.getInt();
+            long filesRead = header.getLong();
+            long malformedRows = header.getLong();
+            long dictionaryOffset = header.getLong();
+            long salesmenOffset = header.getLong();
+            long rowStartsOffset = header.getLong();
+            long codesOffset = header.getLong();
+            long quantitiesOffset = header.getLong();
+            long checksumOffset = header.getLong();
+            header.getLong(); // Cantidad de filas: sale de los inicios
+            long[] fingerprints = {header.getLong(), header.getLong(), header.getLong()};
+            if (checksumOffset + TRAILER_SIZE != size) {
+                throw new IOException("El almacén " + storeFile + " está incompleto.");
+            }
+            ByteBuffer checksums = channel.map(FileChannel.MapMode.READ_ONLY, checksumOffset, TRAILER_SIZE);
+            if (checksums.getLong() != crcOf(channel, 0L, codesOffset)) {
+                throw new IOException("El almacén " + storeFile + " está dañado (CRC del encabezado inválido).");
+            }
+            if (verifyColumns && checksums.getLong() != crcOf(channel, codesOffset, checksumOffset)) {
+                throw new IOException("El almacén " + storeFile + " está dañado (CRC de las filas inválido).");
+            }
+
+            ByteBuffer dictionary = mapSection(channel, storeFile, dictionaryOffset, salesmenOffset);
+            ProductCatalog catalog = new ProductCatalog(productCount);
+            for (int i = 0; i < productCount; i++) {
+                long productId = dictionary.getLong();
+                long price = dictionary.getLong();
+                catalog.put(productId, readText(dictionary), price);
+            }
+            long[] unknownProductIds = new long[unknownCount];
+            for (int i = 0; i < unknownCount; i++) {
+                unknownProductIds[i] = dictionary.getLong();
+                dictionary.getLong();
+                readText(dictionary);
+            }
+
+            ByteBuffer salesmen = mapSection(channel, storeFile, salesmenOffset, rowStartsOffset);
+            SalesmanRegistry registry = new SalesmanRegistry(salesmanCount);
+            for (int i = 0; i < salesmanCount; i++) {
+                long documentNumber = salesmen.getLong();
+                String documentType = readText(salesmen);
+                String firstName = readText(salesmen);
+                String lastName = readText(salesmen);
+                registry.put(documentNumber, documentType, firstName, lastName);
+            }
+
+            long[] rowStarts = new long[salesmanCount + 1];
+            mapSection(channel, storeFile, rowStartsOffset, codesOffset).asLongBuffer().get(rowStarts);
+
+            return new SalesStore(storeFile, catalog, registry, unknownProductIds, rowStarts, filesRead, malformedRows,
+                    codeWidth, quantityWidth, codesOffset, quantitiesOffset, size, fingerprints);
+        }
+    }
+
+    private static ByteBuffer mapSection(FileChannel channel, Path storeFile, long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("Sección demasiado grande en el almacén " + storeFile + ".");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long crcOf(FileChannel channel, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = from; position < to; position += MAP_WINDOW) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, to - position)));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Compara las huellas guardadas al ingerir con los CSV actuales, para avisar que el
+     * almacén puede haber quedado desactualizado.
+     *
+     * @param dataDirectory El directorio de los CSV.
+     * @param includeSalesFiles true para revisar también los archivos de ventas (uno por
+     *                          vendedor, así que cuesta tanto como listar el directorio).
+     *                          El registro debe tener los shards con los que se ingirió.
+     * @return Los nombres de lo que cambió desde la ingesta; vacío si nada.
+     */
+    public List<String> changedSources(Path dataDirectory, boolean includeSalesFiles) {
+        List<String> changed = new ArrayList<>();
+        if (fingerprint(0L, dataDirectory.resolve(Main.PRODUCT_FILE)) != productFingerprint) {
+            changed.add(Main.PRODUCT_FILE);
+        }
+        if (fingerprint(0L, dataDirectory.resolve(Main.SALESMAN_FILE)) != salesmanFingerprint) {
+            changed.add(Main.SALESMAN_FILE);
+        }
+        if (includeSalesFiles) {
+            long salesFiles = 0L;
+            for (int i = 0; i < registry.size(); i++) {
+                salesFiles = fingerprint(salesFiles, registry.salesFile(dataDirectory, i));
+            }
+            if (salesFiles != salesFingerprint) {
+                changed.add("archivos de ventas");
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Calcula los totales por vendedor y por producto recorriendo las dos columnas de filas
+     * mapeadas en memoria. No hay texto que interpretar ni búsquedas en tablas hash: el
+     * código de cada fila ya es el índice del producto.
+     *
+     * @return La agregación equivalente a leer todos los archivos de ventas.
+     * @throws IOException Si el almacén no se puede leer.
+     */
+    public SalesAggregation aggregate() throws IOException {
+        return aggregate(false);
+    }
+
+    /**
+     * Igual que {@link #aggregate()}, armando además el cubo vendedor × producto si se pide.
+     *
+     * @param buildCube true para armar también el cubo (ver {@link SalesAggregation#getCube()}).
+     * @return La agregación equivalente a leer todos los archivos de ventas.
+     * @throws IOException Si el almacén no se puede leer.
+     */
+    public SalesAggregation aggregate(boolean buildCube) throws IOException {
+        int dictionarySize = catalog.size() + unknownProductIds.length;
+        long[] prices = new long[dictionarySize];
+        for (int i = 0; i < catalog.size(); i++) {
+            prices[i] = catalog.priceAt(i);
+        }
+        long[] productQuantities = new long[dictionarySize];
+        boolean[] productSold = new boolean[dictionarySize];
+
+        SalesAggregation aggregation = new SalesAggregation(catalog, registry, storeFile.toAbsolutePath().getParent());
+        if (buildCube) {
+            aggregation.enableCube(rowCount); // Hay a lo sumo una celda por fila
+        }
+        SalesCube.Builder cubeBuilder = aggregation.getCubeBuilder();
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            PackedColumn codes = new PackedColumn(channel, codesOffset, rowCount, codeWidth, false);
+            PackedColumn quantities = new PackedColumn(channel, quantitiesOffset, rowCount, quantityWidth, true);
+            for (int salesman = 0; salesman < registry.size(); salesman++) {
+                long total = 0L;
+                if (cubeBuilder != null) {
+                    cubeBuilder.beginSalesman(salesman);
+                }
+                for (long row = rowStarts[salesman]; row < rowStarts[salesman + 1]; row++) {
+                    int code = codes.get(row);
+                    int quantity = quantities.get(row);
+                    total += (long) quantity * prices[code];
+                    productQuantities[code] += quantity;
+                    productSold[code] = true;
+                    // Los códigos después del catálogo son productos desconocidos, que no van al cubo
+                    if (cubeBuilder != null && code < catalog.size()) {
+                        cubeBuilder.add(code, quantity);
+                    }
+                }
+                if (cubeBuilder != null) {
+                    cubeBuilder.endSalesman();
+                }
+                aggregation.putSalesmanTotal(salesman, total);
+            }
+        }
+        for (int code = 0; code < dictionarySize; code++) {
+            if (productSold[code]) {
+                long productId = code < catalog.size() ? catalog.productIdAt(code) : unknownProductIds[code - catalog.size()];
+                aggregation.addProductQuantity(productId, productQuantities[code]);
+            }
+        }
+        aggregation.addCounters(filesRead, rowCount, malformedRows);
+        aggregation.addBytesRead(rowCount * (codeWidth + quantityWidth));
+        return aggregation;
+    }
+
+    /**
+     * Columna de enteros empaquetados de ancho fijo, leída por ventanas mapeadas. Los códigos
+     * de producto se guardan sin signo (con un byte llegan hasta 255); las cantidades, con signo.
+     */
+    private static class PackedColumn {
+        private final FileChannel channel;
+        private final long offset;
+        private final long count;
+        private final int width;
+        private final boolean signed;
+        private final long windowRows;
+        private MappedByteBuffer window;
+        private long windowStart = 0L;
+        private long windowEnd = 0L;
+
+        PackedColumn(FileChannel channel, long offset, long count, int width, boolean signed) {
+            this.channel = channel;
+            this.offset = offset;
+            this.count = count;
+            this.width = width;
+            this.signed = signed;
+            this.windowRows = MAP_WINDOW / width;
+        }
+
+        int get(long row) throws IOException {
+            if (row < windowStart || row >= windowEnd) {
+                windowStart = row;
+                windowEnd = Math.min(count, row + windowRows);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset + row * width, (windowEnd - windowStart) * width);
+            }
+            int i = (int) (row - windowStart);
+            switch (width) {
+                case 1:
+                    return signed ? window.get(i) : Byte.toUnsignedInt(window.get(i));
+                case 2:
+                    return signed ? window.getShort(i << 1) : Short.toUnsignedInt(window.getShort(i << 1));
+                default:
+                    return window.getInt(i << 2);
+            }
+        }
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    public SalesmanRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return Un resumen del contenido y el tamaño del almacén.
+     */
+    public String describe() {
+        return "Almacén " + storeFile + ": " + registry.size() + " vendedores, " + rowCount + " filas, "
+                + fileSize + " bytes (" + codeWidth + " + " + quantityWidth + " bytes por fila)";
+    }
+}
@@ -0,0 +1,242 @@
+package com.poli;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo vigilante ({@code --vigilar}): un proceso que queda corriendo con el catálogo, los
+ * vendedores y los totales en memoria, y que vigila el directorio de datos con
+ * {@link WatchService}. Cuando llegan o cambian archivos "Sales_*.csv" solo se releen esos
+ * archivos (con {@link SalesCheckpoint#refreshSalesman}, que además lee solo lo agregado al
+ * final) y los reportes se regeneran.
+ *
+ * <p>Los cambios se agrupan: los reportes se regeneran cuando pasa {@code --espera}
+ * milisegundos sin cambios nuevos, o a lo sumo cada diez esperas si los archivos no dejan
+ * de cambiar. Si cambia "Product.csv" se recalcula todo, porque los totales guardados
+ * dependen de los precios. Si cambia solo "Salesman.csv" se recarga el registro y se revisan
+ * los archivos de todos los vendedores, pero solo se leen los que cambiaron; los vendedores
+ * retirados dejan de contar.</p>
+ */
+public class SalesWatcher {
+
+    /** Si los cambios no paran, los reportes se regeneran a lo sumo cada tantas esperas. */
+    private static final int MAX_DEBOUNCE_ROUNDS = 10;
+
+    private final RunOptions options;
+    private final Path dataDirectory;
+    private final long debounceMillis;
+
+    private ProductCatalog catalog;
+    private SalesmanRegistry registry;
+    private SalesCheckpoint checkpoint;
+    private volatile SalesCube cube;
+
+    /** Índices de los vendedores cuyos archivos cambiaron desde la última actualización. */
+    private final BitSet pendingSalesmen = new BitSet();
+    private boolean catalogReloadPending = false;
+    private boolean registryReloadPending = false;
+    private boolean rescanPending = false;
+
+    /**
+     * @param options Las opciones de la corrida (directorio, shards, formato de reportes, etc.).
+     */
+    public SalesWatcher(RunOptions options) {
+        this.options = options;
+        this.dataDirectory = options.getDataDirectory();
+        this.debounceMillis = options.getDebounceMillis();
+    }
+
+    /**
+     * Carga los datos, genera los reportes y queda vigilando el directorio hasta que se
+     * detenga el proceso.
+     *
+     * @throws IOException Si no se puede vigilar el directorio.
+     * @throws InterruptedException Si se interrumpe el hilo.
+     */
+    public void run() throws IOException, InterruptedException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            register(watchService, dataDirectory);
+            if (options.getSalesShards() > 0) {
+                for (int shard = 0; shard < options.getSalesShards(); shard++) {
+                    Path shardDirectory = SalesFileLayout.shardDirectory(dataDirectory, shard, options.getSalesShards());
+                    Files.createDirectories(shardDirectory);
+                    register(watchService, shardDirectory);
+                }
+            }
+            // Se registra antes de la carga inicial para no perder archivos que lleguen mientras tanto
+            catalogReloadPending = true;
+            registryReloadPending = true;
+            updateAndReport();
+            System.out.println("Vigilando " + dataDirectory.toAbsolutePath() + " (espera de " + debounceMillis + " ms). Ctrl+C para terminar.");
+
+            long firstPendingMillis = 0L;
+            while (true) {
+                WatchKey key = hasPending() ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS) : watchService.take();
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        handle((Path) key.watchable(), event);
+                    }
+                    if (!key.reset()) {
+                        System.err.println("Se dejó de vigilar " + key.watchable() + " (el directorio ya no existe).");
+                    }
+                    if (!hasPending()) {
+                        continue;
+                    }
+                    if (firstPendingMillis == 0L) {
+                        firstPendingMillis = System.currentTimeMillis();
+                    }
+                    if (System.currentTimeMillis() - firstPendingMillis < debounceMillis * MAX_DEBOUNCE_ROUNDS) {
+                        continue;
+                    }
+                }
+                if (hasPending()) {
+                    updateAndReport();
+                    firstPendingMillis = 0L;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return El cubo vendedor × producto de la última actualización, o null si no se pidió
+     *         ({@code --cubo}) o todavía no se generaron los reportes. Se puede llamar desde
+     *         otro hilo mientras el vigilante corre.
+     */
+    public SalesCube getCube() {
+        return cube;
+    }
+
+    private static void register(WatchService watchService, Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private boolean hasPending() {
+        return catalogReloadPending || registryReloadPending || rescanPending || !pendingSalesmen.isEmpty();
+    }
+
+    /**
+     * Anota lo que hay que actualizar según el archivo que cambió; los demás archivos del
+     * directorio (reportes, temporales, checkpoint) se ignoran.
+     */
+    private void handle(Path directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            rescanPending = true; // Se perdieron eventos: se revisan todos los archivos
+            return;
+        }
+        String fileName = ((Path) event.context()).getFileName().toString();
+        if (directory.equals(dataDirectory) && fileName.equals(Main.PRODUCT_FILE)) {
+            catalogReloadPending = true;
+            return;
+        }
+        if (directory.equals(dataDirectory) && fileName.equals(Main.SALESMAN_FILE)) {
+            registryReloadPending = true;
+            return;
+        }
+        long documentNumber = documentNumberOf(fileName);
+        if (documentNumber < 0 || registry == null) {
+            return;
+        }
+        int salesmanIndex = registry.indexOf(documentNumber);
+        if (salesmanIndex < 0) {
+            System.err.println("El archivo " + fileName + " es de un vendedor que no está en Salesman.csv; se ignora.");
+            return;
+        }
+        pendingSalesmen.set(salesmanIndex);
+    }
+
+    /**
+     * @param fileName Un nombre de archivo.
+     * @return El número de documento si es "Sales_&lt;TipoDoc&gt;_&lt;NumDoc&gt;.csv", o -1 si no.
+     */
+    static long documentNumberOf(String fileName) {
+        if (!fileName.startsWith("Sales_") || !fileName.endsWith(".csv")) {
+            return -1L;
+        }
+        int separator = fileName.lastIndexOf('_');
+        try {
+            return Long.parseLong(fileName.substring(separator + 1, fileName.length() - ".csv".length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Igual que {@link #update()}, pero un error (por ejemplo, "Product.csv" a medio copiar)
+     * solo se informa: el proceso sigue vigilando y se reintenta con el próximo cambio.
+     */
+    private void updateAndReport() {
+        try {
+            update();
+        } catch (IOException e) {
+            System.err.println("Error al actualizar los reportes: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error inesperado al actualizar los reportes: " + e);
+        }
+    }
+
+    /**
+     * Aplica lo pendiente a los totales en memoria y regenera los reportes.
+     */
+    private void update() throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        RunMetrics.Stage stage = metrics.start("actualizacion");
+        long files;
+        if (catalogReloadPending) {
+            catalog = Main.loadProductCatalog(dataDirectory);
+            if (checkpoint == null && options.isIncremental()) {
+                checkpoint = SalesCheckpoint.load(dataDirectory.resolve(options.getCheckpointFile()), dataDirectory.resolve(Main.PRODUCT_FILE));
+            } else {
+                // Con otro catálogo los totales guardados no sirven; se recalcula todo
+                checkpoint = SalesCheckpoint.create(dataDirectory.resolve(Main.PRODUCT_FILE));
+            }
+        }
+        if (catalogReloadPending || registryReloadPending) {
+            // Con otro registro basta con el checkpoint actual: refresh lee solo los archivos
+            // que cambiaron y retira a los vendedores que ya no están
+            registry = Main.loadSalesmanRegistry(dataDirectory);
+            registry.setSalesShards(options.getSalesShards());
+        }
+        if (catalogReloadPending || registryReloadPending || rescanPending) {
+            checkpoint.refresh(catalog, registry, dataDirectory);
+            files = registry.size();
+        } else {
+            checkpoint.resetRefreshCounters();
+            for (int i = pendingSalesmen.nextSetBit(0); i >= 0; i = pendingSalesmen.nextSetBit(i + 1)) {
+                checkpoint.refreshSalesman(catalog, registry, dataDirectory, i);
+            }
+            files = pendingSalesmen.cardinality();
+        }
+        catalogReloadPending = false;
+        registryReloadPending = false;
+        rescanPending = false;
+        pendingSalesmen.clear();
+        stage.finish(0L, 0L, files);
+        System.out.println(checkpoint.describeLastRefresh());
+
+        if (catalog.size() == 0 || registry.size() == 0) {
+            System.err.println("Error: No se pudieron cargar los datos. Se esperan cambios en 'Product.csv' y 'Salesman.csv'.");
+            return;
+        }
+        if (options.isIncremental()) {
+            checkpoint.save(dataDirectory.resolve(options.getCheckpointFile()));
+        }
+        SalesAggregation aggregation = checkpoint.toAggregation(catalog, registry, dataDirectory, options.isCube());
+        if (aggregation.hasCube()) {
+            cube = aggregation.getCube();
+            System.out.println(cube.describe());
+        }
+        Main.createFinalReports(aggregation, dataDirectory, options.getFromRank(), options.getToRank(),
+                options.getReportFormat(), options.isGzip(), metrics);
+        metrics.write(dataDirectory.resolve(options.getMetricsFile()));
+        System.out.println(metrics.describe());
+    }
+}
@@ -0,0 +1,181 @@
+package com.poli;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registro de vendedores cargado desde "Salesman.csv". Cada número de documento recibe
+ * un índice denso; el tipo de documento, el nombre y el apellido se guardan en arreglos
+ * por índice. Los textos repetidos (tipos de documento, nombres comunes) se comparten
+ * entre vendedores para no tener una copia por fila.
+ */
+public class SalesmanRegistry {
+
+    private final LongIndexMap index;
+    private String[] documentTypes;
+    private String[] firstNames;
+    private String[] lastNames;
+    private final HashMap<String, String> sharedTexts = new HashMap<>();
+    private int salesShards = 0;
+
+    /**
+     * Recibe los vendedores a medida que se leen de "Salesman.csv".
+     */
+    public interface SalesmanConsumer {
+        void accept(long documentNumber, String documentType, String firstName, String lastName) throws IOException;
+    }
+
+    SalesmanRegistry(int expectedSize) {
+        index = new LongIndexMap(expectedSize);
+        int capacity = Math.max(16, expectedSize);
+        documentTypes = new String[capacity];
+        firstNames = new String[capacity];
+        lastNames = new String[capacity];
+    }
+
+    /**
+     * Lee el archivo de vendedores ("TipoDocumento;NúmeroDocumento;NombresVendedor;ApellidosVendedor").
+     * Si un documento aparece dos veces se conserva el último, como hacía el HashMap original.
+     *
+     * @param salesmanFile La ruta del archivo "Salesman.csv".
+     * @return El registro; vacío si el archivo no se pudo leer.
+     */
+    public static SalesmanRegistry load(Path salesmanFile) {
+        SalesmanRegistry registry = new SalesmanRegistry(16);
+        try {
+            forEach(salesmanFile, registry::put);
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo " + salesmanFile + ": " + e.getMessage());
+        }
+        return registry;
+    }
+
+    /**
+     * Recorre "Salesman.csv" línea por línea sin guardar nada en memoria, con las mismas
+     * reglas que {@link #load}: se omiten el encabezado, las líneas que no tienen cuatro
+     * columnas y (con un aviso) las que no tienen un número de documento válido.
+     *
+     * @param salesmanFile La ruta del archivo "Salesman.csv".
+     * @param consumer Recibe cada vendedor, en el orden del archivo.
+     * @throws IOException Si el archivo no se puede leer, o lo que lance {@code consumer}.
+     */
+    public static void forEach(Path salesmanFile, SalesmanConsumer consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(salesmanFile.toFile()))) {
+            reader.readLine(); // Omitir el encabezado
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(";");
+                if (parts.length == 4) {
+                    long documentNumber;
+                    try {
+                        documentNumber = Long.parseLong(parts[1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Vendedor inválido en " + salesmanFile + ": " + line);
+                        continue;
+                    }
+                    consumer.accept(documentNumber, parts[0], parts[2], parts[3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Construye un registro a partir del mapa de vendedores, para los métodos que todavía
+     * reciben los datos como HashMap.
+     *
+     * @param salesMenData El HashMap con la información de los vendedores.
+     * @return El registro.
+     */
+    public static SalesmanRegistry fromMap(HashMap<Long, String[]> salesMenData) {
+        SalesmanRegistry registry = new SalesmanRegistry(salesMenData.size());
+        for (Map.Entry<Long, String[]> entry : salesMenData.entrySet()) {
+            String[] info = entry.getValue();
+            registry.put(entry.getKey(), info[0], info[1], info[2]);
+        }
+        return registry;
+    }
+
+    void put(long documentNumber, String documentType, String firstName, String lastName) {
+        int i = index.add(documentNumber);
+        if (i == documentTypes.length) {
+            int capacity = documentTypes.length * 2;
+            documentTypes = Arrays.copyOf(documentTypes, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+        }
+        documentTypes[i] = share(documentType);
+        firstNames[i] = share(firstName);
+        lastNames[i] = share(lastName);
+    }
+
+    private String share(String text) {
+        String shared = sharedTexts.putIfAbsent(text, text);
+        return shared != null ? shared : text;
+    }
+
+    /**
+     * @return Cantidad de vendedores registrados.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @param documentNumber El número de documento.
+     * @return El índice denso del vendedor, o -1 si no está registrado.
+     */
+    public int indexOf(long documentNumber) {
+        return index.indexOf(documentNumber);
+    }
+
+    public long documentNumberAt(int salesmanIndex) {
+        return index.keyAt(salesmanIndex);
+    }
+
+    public String documentTypeAt(int salesmanIndex) {
+        return documentTypes[salesmanIndex];
+    }
+
+    public String firstNameAt(int salesmanIndex) {
+        return firstNames[salesmanIndex];
+    }
+
+    public String lastNameAt(int salesmanIndex) {
+        return lastNames[salesmanIndex];
+    }
+
+    /**
+     * Indica que los archivos de ventas están repartidos en shards (ver {@link SalesFileLayout}).
+     *
+     * @param shards La cantidad de shards, o 0 si todos están en el directorio de datos.
+     */
+    public void setSalesShards(int shards) {
+        this.salesShards = shards;
+    }
+
+    /**
+     * @param dataDirectory El directorio donde están los archivos de ventas.
+     * @param salesmanIndex El índice del vendedor.
+     * @return La ruta de su archivo "Sales_<TipoDoc>_<NumDoc>.csv".
+     */
+    public Path salesFile(Path dataDirectory, int salesmanIndex) {
+        return SalesFileLayout.salesFile(dataDirectory, documentTypes[salesmanIndex], documentNumberAt(salesmanIndex), salesShards);
+    }
+
+    /**
+     * @return Un HashMap con el número de documento como clave y {tipo, nombre, apellido} como valor.
+     */
+    public HashMap<Long, String[]> toMap() {
+        HashMap<Long, String[]> salesMenData = new HashMap<>();
+        for (int i = 0; i < size(); i++) {
+            String[] salesmanInfo = {documentTypes[i], firstNames[i], lastNames[i]};
+            salesMenData.put(documentNumberAt(i), salesmanInfo);
+        }
+        return salesMenData;
+    }
+}
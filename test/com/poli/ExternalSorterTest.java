@@ -0,0 +1,90 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * El ordenamiento externo debe entregar todo, en orden y de forma estable, y no dejar
+ * corridas en disco.
+ */
+class ExternalSorterTest {
+
+    /** Registros {clave, orden de llegada}; se ordenan solo por la clave. */
+    private static final ExternalSorter.Codec<long[]> CODEC = new ExternalSorter.Codec<long[]>() {
+        @Override
+        public void write(DataOutput out, long[] record) throws IOException {
+            out.writeLong(record[0]);
+            out.writeLong(record[1]);
+        }
+
+        @Override
+        public long[] read(DataInput in) throws IOException {
+            return new long[]{in.readLong(), in.readLong()};
+        }
+
+        @Override
+        public long memorySize(long[] record) {
+            return 32;
+        }
+    };
+
+    private static final Comparator<long[]> BY_KEY = Comparator.comparingLong(record -> record[0]);
+
+    @TempDir
+    Path spillDirectory;
+
+    private void sortAndCheck(int records, long memoryBudget, String expectedPasses) throws IOException {
+        ExternalSorter<long[]> sorter = new ExternalSorter<>(BY_KEY, CODEC, memoryBudget, spillDirectory);
+        Random random = new Random(5L);
+        for (int i = 0; i < records; i++) {
+            sorter.add(new long[]{random.nextInt(50), i});
+        }
+        try (ExternalSorter.Merge<long[]> merge = sorter.finish()) {
+            long[] previous = null;
+            int count = 0;
+            for (long[] record = merge.next(); record != null; record = merge.next()) {
+                if (previous != null) {
+                    assertTrue(previous[0] < record[0] || previous[0] == record[0] && previous[1] < record[1],
+                            "fuera de orden: " + previous[0] + "/" + previous[1] + " antes de " + record[0] + "/" + record[1]);
+                }
+                previous = record;
+                count++;
+            }
+            assertEquals(records, count);
+            assertNull(merge.next());
+        }
+        assertTrue(sorter.describe().endsWith(expectedPasses + " pasadas de mezcla"), sorter.describe());
+        try (Stream<Path> left = Files.list(spillDirectory)) {
+            assertEquals(0L, left.count());
+        }
+    }
+
+    @Test
+    void sortsInMemoryWithoutRuns() throws IOException {
+        sortAndCheck(1000, 1L << 20, "0");
+    }
+
+    @Test
+    void mergesSpilledRunsStably() throws IOException {
+        // Unas 25 corridas de 40 registros: una sola pasada de mezcla
+        sortAndCheck(1000, 40 * 40, "1");
+    }
+
+    @Test
+    void mergesManyRunsInSeveralPasses() throws IOException {
+        // 500 corridas de 10 registros, más de las que se mezclan a la vez
+        sortAndCheck(5000, 10 * 40, "2");
+    }
+}
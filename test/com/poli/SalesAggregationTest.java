@@ -0,0 +1,86 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Las distintas formas de recorrer los archivos de ventas (secuencial, por bloques en
+ * paralelo, por rangos y con lectura anticipada) deben dar los mismos totales.
+ */
+class SalesAggregationTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    private static ProductCatalog catalog;
+    private static SalesmanRegistry registry;
+    private static SalesAggregation expected;
+
+    @BeforeAll
+    static void generateDataset() throws Exception {
+        GenerateInfoFiles.generateDataset(dataDirectory, 500, 20, 300, 7L);
+        catalog = Main.loadProductCatalog(dataDirectory);
+        registry = Main.loadSalesmanRegistry(dataDirectory);
+        expected = SalesAggregation.aggregate(catalog, registry, dataDirectory);
+    }
+
+    static void assertSameTotals(SalesAggregation expected, SalesAggregation actual) {
+        assertEquals(expected.getSalesTotals(), actual.getSalesTotals());
+        assertEquals(expected.getProductTotals(), actual.getProductTotals());
+        assertEquals(expected.getRowsProcessed(), actual.getRowsProcessed());
+        assertEquals(expected.getFilesRead(), actual.getFilesRead());
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        assertSameTotals(expected, SalesAggregation.aggregateParallel(catalog, registry, dataDirectory, 3));
+    }
+
+    @Test
+    void rangesMergeIntoFullAggregation() {
+        SalesAggregation merged = new SalesAggregation(catalog, registry, dataDirectory);
+        merged.merge(SalesAggregation.aggregateRange(catalog, registry, dataDirectory, 0, 123, 1));
+        merged.merge(SalesAggregation.aggregateRange(catalog, registry, dataDirectory, 123, 500, 2));
+        assertSameTotals(expected, merged);
+        for (int i = 0; i < registry.size(); i++) {
+            assertEquals(expected.salesmanTotalAt(i), merged.salesmanTotalAt(i));
+        }
+    }
+
+    @Test
+    void rangeOutsideTargetIsRejected() {
+        SalesAggregation target = new SalesAggregation(catalog, registry, dataDirectory, 0, 100);
+        SalesAggregation outside = SalesAggregation.aggregateRange(catalog, registry, dataDirectory, 50, 150, 1);
+        assertThrows(IllegalArgumentException.class, () -> target.merge(outside));
+    }
+
+    @Test
+    void parallelCubeMatchesSequential() {
+        SalesCube sequential = SalesAggregation.aggregate(catalog, registry, dataDirectory, true).getCube();
+        SalesAggregation parallel = SalesAggregation.aggregateParallel(catalog, registry, dataDirectory, 3, true);
+        assertSameTotals(expected, parallel);
+        assertSameCells(sequential, parallel.getCube());
+        assertSameCells(sequential, new SalesFilePipeline(2, 2, 1024 * 1024).aggregate(catalog, registry, dataDirectory, true).getCube());
+    }
+
+    private static void assertSameCells(SalesCube expected, SalesCube actual) {
+        assertEquals(expected.cellCount(), actual.cellCount());
+        for (int salesman = 0; salesman < registry.size(); salesman++) {
+            assertEquals(expected.productCountOf(salesman), actual.productCountOf(salesman));
+            for (int product = 0; product < catalog.size(); product++) {
+                assertEquals(expected.quantity(salesman, product), actual.quantity(salesman, product));
+            }
+        }
+    }
+
+    @Test
+    void pipelineMatchesSequential() {
+        SalesFilePipeline pipeline = new SalesFilePipeline(2, 2, 1024 * 1024);
+        assertSameTotals(expected, pipeline.aggregate(catalog, registry, dataDirectory, false));
+    }
+}
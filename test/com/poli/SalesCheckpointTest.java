@@ -0,0 +1,114 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Después de cada cambio en los archivos de ventas, lo que da el checkpoint (guardado y
+ * vuelto a cargar) debe ser igual a una corrida completa.
+ */
+class SalesCheckpointTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private ProductCatalog catalog;
+    private SalesmanRegistry registry;
+    private Path checkpointFile;
+    private Path salesFile;
+    private long productId;
+
+    @BeforeEach
+    void generateDataset() throws Exception {
+        GenerateInfoFiles.generateDataset(dataDirectory, 40, 10, 50, 3L);
+        catalog = Main.loadProductCatalog(dataDirectory);
+        registry = Main.loadSalesmanRegistry(dataDirectory);
+        checkpointFile = dataDirectory.resolve(SalesCheckpoint.DEFAULT_FILE);
+        salesFile = registry.salesFile(dataDirectory, 0);
+        productId = catalog.productIdAt(0);
+        SalesCheckpoint checkpoint = SalesCheckpoint.create(dataDirectory.resolve(Main.PRODUCT_FILE));
+        checkpoint.refresh(catalog, registry, dataDirectory);
+        checkpoint.save(checkpointFile);
+    }
+
+    private SalesCheckpoint refreshAndCompare() throws Exception {
+        SalesCheckpoint checkpoint = SalesCheckpoint.load(checkpointFile, dataDirectory.resolve(Main.PRODUCT_FILE));
+        checkpoint.refresh(catalog, registry, dataDirectory);
+        checkpoint.save(checkpointFile);
+        SalesAggregation expected = SalesAggregation.aggregate(catalog, registry, dataDirectory);
+        SalesAggregationTest.assertSameTotals(expected, checkpoint.toAggregation(catalog, registry, dataDirectory));
+        return checkpoint;
+    }
+
+    private void append(String text) throws Exception {
+        Files.write(salesFile, text.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void appendedRowsMatchFullRun() throws Exception {
+        append(productId + ";7\n" + productId + ";-2\n");
+        SalesCheckpoint checkpoint = refreshAndCompare();
+        assertTrue(checkpoint.describeLastRefresh().contains("con datos agregados: 1"));
+    }
+
+    @Test
+    void sameSizeEditIsReread() throws Exception {
+        // Más de lo que cubre el CRC del final, para que la edición quede fuera de él
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            rows.append(productId).append(';').append(i % 7 + 1).append('\n');
+        }
+        append(rows.toString());
+        refreshAndCompare();
+
+        List<String> lines = Files.readAllLines(salesFile, StandardCharsets.US_ASCII);
+        String line = lines.get(2);
+        char last = line.charAt(line.length() - 1);
+        lines.set(2, line.substring(0, line.length() - 1) + (last == '9' ? '1' : '9'));
+        FileTime modified = Files.getLastModifiedTime(salesFile);
+        Files.write(salesFile, lines, StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(salesFile, FileTime.fromMillis(modified.toMillis() + 2000));
+
+        SalesCheckpoint checkpoint = refreshAndCompare();
+        assertTrue(checkpoint.describeLastRefresh().contains("releídos completos: 1"));
+    }
+
+    @Test
+    void partialLastLineIsReadAgainWhenCompleted() throws Exception {
+        append(productId + ";4");
+        refreshAndCompare();
+        append("5\n");
+        refreshAndCompare();
+        append(productId + ";1\n");
+        refreshAndCompare();
+    }
+
+    // Un conteo dañado no debe reservar memoria ni fallar: equivale a no tener checkpoint
+    @ParameterizedTest
+    @ValueSource(ints = {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 24})
+    void corruptCountsMeanNoCheckpoint(int count) throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(checkpointFile.toFile(), "rw")) {
+            // Después del número mágico y la huella de Product.csv, el primer archivo:
+            // documento, tipo (UTF) y ocho long, y luego la cantidad de productos
+            file.seek(Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES);
+            int typeLength = file.readUnsignedShort();
+            file.seek(file.getFilePointer() + typeLength + 8 * Long.BYTES);
+            file.writeInt(count);
+        }
+        SalesCheckpoint checkpoint = refreshAndCompare();
+        assertTrue(checkpoint.describeLastRefresh().contains("nuevos: " + registry.size()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las filas que acepta el parser deben ser las mismas que aceptaba {@code split(";")}.
+ */
+class SalesFileParserTest {
+
+    private static final Path FILE = Paths.get("Sales_CC_1.csv");
+
+    private final List<String> rows = new ArrayList<>();
+    private final List<String> malformed = new ArrayList<>();
+
+    private long parse(String content) {
+        SalesFileParser.RowHandler handler = new SalesFileParser.RowHandler() {
+            @Override
+            public void onRow(long productId, int quantity) {
+                rows.add(productId + ":" + quantity);
+            }
+
+            @Override
+            public void onMalformedRow(Path file, long lineNumber, String reason) {
+                malformed.add(lineNumber + ":" + reason);
+            }
+        };
+        return new SalesFileParser().parse(FILE, ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)), handler);
+    }
+
+    @Test
+    void readsRowsAfterHeader() {
+        assertEquals(3, parse("ID_Producto;Cantidad\n10;5\r\n11;-2\n\n12;7"));
+        assertEquals(List.of("10:5", "11:-2", "12:7"), rows);
+        assertEquals(List.of(), malformed);
+    }
+
+    @Test
+    void acceptsTrailingSeparators() {
+        assertEquals(2, parse("ID;Cantidad\n123;5;\n124;6;;\r\n"));
+        assertEquals(List.of("123:5", "124:6"), rows);
+        assertEquals(List.of(), malformed);
+    }
+
+    @Test
+    void rejectsExtraColumnsAndBadNumbers() {
+        assertEquals(0, parse("ID;Cantidad\n123;5;9\n123\nabc;4\n123;x\n123;;\n"));
+        assertEquals(List.of(
+                "2:se esperaban 2 columnas",
+                "3:se esperaban 2 columnas",
+                "4:ID de producto no numérico",
+                "5:cantidad no numérica",
+                "6:se esperaban 2 columnas"), malformed);
+    }
+
+    @Test
+    void acceptsLeadingPlusLikeParseLong() {
+        assertEquals(2, parse("ID;Cantidad\n+10;+5\n+11;-2\n+;4\n12;+\n13;+-1\n++14;1\n"));
+        assertEquals(List.of("10:5", "11:-2"), rows);
+        assertEquals(List.of(
+                "4:ID de producto no numérico",
+                "5:cantidad no numérica",
+                "6:cantidad no numérica",
+                "7:ID de producto no numérico"), malformed);
+    }
+}
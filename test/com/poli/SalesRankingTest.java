@@ -0,0 +1,103 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cualquier rango de posiciones debe ser el mismo tramo que da ordenar todo el conjunto.
+ */
+class SalesRankingTest {
+
+    private static final int COUNT = 500;
+
+    private long[] values;
+    private long[] keys;
+    private boolean[] included;
+    private int[] fullRanking;
+
+    @BeforeEach
+    void generateValues() {
+        Random random = new Random(5L);
+        values = new long[COUNT];
+        keys = new long[COUNT];
+        included = new boolean[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            // Pocos valores distintos, para que haya muchos empates que resolver por la clave
+            values[i] = random.nextInt(40) - 10;
+            keys[i] = random.nextInt(1_000_000_000);
+            included[i] = random.nextInt(10) != 0;
+        }
+        fullRanking = IntStream.range(0, COUNT)
+                .filter(i -> included[i])
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> -values[i]).thenComparingLong(i -> keys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private int[] select(int fromRank, int toRank) {
+        return SalesRanking.select(COUNT, i -> included[i], i -> values[i], i -> keys[i], fromRank, toRank);
+    }
+
+    private int[] expected(int fromRank, int toRank) {
+        int from = Math.min(fromRank - 1, fullRanking.length);
+        int to = (int) Math.min((long) toRank, fullRanking.length);
+        return Arrays.copyOfRange(fullRanking, from, to);
+    }
+
+    private void assertRange(int fromRank, int toRank) {
+        assertArrayEquals(expected(fromRank, toRank), select(fromRank, toRank), "posiciones " + fromRank + "-" + toRank);
+    }
+
+    @Test
+    void topMatchesFullSort() {
+        for (int top : new int[] {1, 2, 10, 100, fullRanking.length - 1, fullRanking.length}) {
+            assertRange(1, top);
+        }
+    }
+
+    @Test
+    void pagesMatchFullSort() {
+        for (int from = 1; from <= fullRanking.length; from += 37) {
+            assertRange(from, from + 36);
+        }
+    }
+
+    @Test
+    void tiesAreBrokenByKey() {
+        Arrays.fill(values, 3L);
+        fullRanking = IntStream.range(0, COUNT)
+                .filter(i -> included[i])
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> keys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertRange(1, 25);
+        assertRange(200, 260);
+    }
+
+    // Rangos que pasan del tamaño del montículo o del conjunto: se devuelve lo que haya
+    @Test
+    void rangesBeyondTheSetAreTruncated() {
+        int size = fullRanking.length;
+        assertRange(size - 5, size + 5);
+        assertRange(size, Integer.MAX_VALUE);
+        assertRange(1, Integer.MAX_VALUE);
+        assertRange(COUNT - 3, COUNT + 3);
+        assertArrayEquals(new int[0], select(size + 1, size + 10));
+        assertArrayEquals(new int[0], select(Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void invalidRangesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> select(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> select(10, 9));
+    }
+}
@@ -0,0 +1,80 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Los parciales de los trabajadores deben sumar lo mismo que una corrida completa, y el
+ * coordinador debe rechazar los dañados, los de otro rango y los de otros datos.
+ */
+class SalesShardCoordinatorTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    private static ProductCatalog catalog;
+    private static SalesmanRegistry registry;
+    private static long productCrc;
+    private static long salesmanCrc;
+
+    private final SalesShardCoordinator coordinator =
+            new SalesShardCoordinator(RunOptions.parse(new String[]{"--datos=" + dataDirectory}));
+
+    @BeforeAll
+    static void generateDataset() throws Exception {
+        GenerateInfoFiles.generateDataset(dataDirectory, 200, 10, 80, 9L);
+        catalog = Main.loadProductCatalog(dataDirectory);
+        registry = Main.loadSalesmanRegistry(dataDirectory);
+        productCrc = SalesCheckpoint.crcOf(dataDirectory.resolve(Main.PRODUCT_FILE));
+        salesmanCrc = SalesCheckpoint.crcOf(dataDirectory.resolve(Main.SALESMAN_FILE));
+    }
+
+    private static Path writePartial(String name, int from, int to) throws IOException {
+        Path partialFile = dataDirectory.resolve(name);
+        SalesAggregation aggregation = SalesAggregation.aggregateRange(catalog, registry, dataDirectory, from, to, 1);
+        SalesShardCoordinator.writePartial(aggregation, from, to, partialFile, productCrc, salesmanCrc);
+        return partialFile;
+    }
+
+    private SalesAggregation emptyResult() {
+        return new SalesAggregation(catalog, registry, dataDirectory);
+    }
+
+    @Test
+    void partialsMergeIntoFullAggregation() throws IOException {
+        SalesAggregation result = emptyResult();
+        assertNull(coordinator.mergePartial(result, writePartial("a.bin", 0, 70), productCrc, salesmanCrc, 0, 70));
+        assertNull(coordinator.mergePartial(result, writePartial("b.bin", 70, 200), productCrc, salesmanCrc, 70, 200));
+        SalesAggregationTest.assertSameTotals(SalesAggregation.aggregate(catalog, registry, dataDirectory), result);
+    }
+
+    @Test
+    void damagedPartialIsRejected() throws IOException {
+        Path partialFile = writePartial("danado.bin", 0, 100);
+        try (RandomAccessFile file = new RandomAccessFile(partialFile.toFile(), "rw")) {
+            file.seek(40);
+            int value = file.read();
+            file.seek(40);
+            file.write(value ^ 1);
+        }
+        assertEquals("el parcial está dañado (CRC inválido)",
+                coordinator.mergePartial(emptyResult(), partialFile, productCrc, salesmanCrc, 0, 100));
+    }
+
+    @Test
+    void partialOfOtherRangeOrDataIsRejected() throws IOException {
+        assertEquals("el parcial no corresponde a los vendedores 0-50",
+                coordinator.mergePartial(emptyResult(), writePartial("rango.bin", 0, 100), productCrc, salesmanCrc, 0, 50));
+        assertEquals("Product.csv o Salesman.csv cambiaron durante la corrida",
+                coordinator.mergePartial(emptyResult(), writePartial("datos.bin", 0, 100), productCrc + 1, salesmanCrc, 0, 100));
+        assertEquals("no se escribió el parcial",
+                coordinator.mergePartial(emptyResult(), dataDirectory.resolve("falta.bin"), productCrc, salesmanCrc, 0, 100));
+    }
+}
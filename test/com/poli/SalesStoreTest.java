@@ -0,0 +1,72 @@
+package com.poli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Lo que se calcula desde el almacén debe ser igual a leer los CSV, con cualquier ancho de
+ * columna de códigos.
+ */
+class SalesStoreTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private SalesStore ingest(int products) throws IOException {
+        GenerateInfoFiles.generateDataset(dataDirectory, 60, 20, products, 11L);
+        ProductCatalog catalog = Main.loadProductCatalog(dataDirectory);
+        SalesmanRegistry registry = Main.loadSalesmanRegistry(dataDirectory);
+        SalesStore store = SalesStore.ingest(catalog, registry, dataDirectory, dataDirectory.resolve(SalesStore.DEFAULT_FILE));
+        SalesAggregation expected = SalesAggregation.aggregate(catalog, registry, dataDirectory);
+        SalesAggregationTest.assertSameTotals(expected, SalesStore.open(dataDirectory.resolve(SalesStore.DEFAULT_FILE), true).aggregate());
+        return store;
+    }
+
+    // Diccionarios que usan el byte o el short entero: los códigos altos no deben leerse negativos
+    @ParameterizedTest
+    @ValueSource(ints = {100, 200, 256, 300, 40000, 65536})
+    void aggregateMatchesCsv(int products) throws IOException {
+        ingest(products);
+    }
+
+    @Test
+    void columnsAreVerifiedOnlyWhenAsked() throws IOException {
+        ingest(50);
+        Path storeFile = dataDirectory.resolve(SalesStore.DEFAULT_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(storeFile.toFile(), "rw")) {
+            // Último byte de la columna de cantidades, justo antes de los dos CRC
+            long position = file.length() - 2 * Long.BYTES - 1;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 1);
+        }
+        SalesStore.open(storeFile);
+        assertThrows(IOException.class, () -> SalesStore.open(storeFile, true));
+    }
+
+    @Test
+    void changedCsvAreReported() throws IOException {
+        SalesStore store = ingest(50);
+        assertEquals(List.of(), store.changedSources(dataDirectory, true));
+
+        Path product = dataDirectory.resolve(Main.PRODUCT_FILE);
+        Files.setLastModifiedTime(product, FileTime.fromMillis(Files.getLastModifiedTime(product).toMillis() + 2000));
+        Path sales = store.getRegistry().salesFile(dataDirectory, 3);
+        Files.write(sales, List.of("1;1"), StandardOpenOption.APPEND);
+        assertEquals(List.of(Main.PRODUCT_FILE), store.changedSources(dataDirectory, false));
+        assertEquals(List.of(Main.PRODUCT_FILE, "archivos de ventas"), store.changedSources(dataDirectory, true));
+    }
+}